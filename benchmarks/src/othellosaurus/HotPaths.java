@@ -0,0 +1,114 @@
+package othellosaurus;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks of the hot paths of search: move generation, making moves,
+ * hashing, bit tricks, evaluation and stability. Every benchmark runs over
+ * the same corpus of CORPUS_SIZE positions from random games, covering all
+ * phases of the game, and reports the average time per position. Build and
+ * run with (see benchmarks/pom.xml)
+ *   java -jar benchmarks/target/benchmarks.jar -rf json -rff results.json
+ * to write results in JSON for comparing runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPaths {
+	public static final int CORPUS_SIZE = 10000;
+	public static final int CORPUS_GAMES = 200; // random games the corpus is taken from
+
+	// positions to run benchmarks on and a legal move (or PASS) from each
+	private Board[] corpus;
+	private int[] moves;
+	private Evaluator evaluator;
+
+	/** Creates the corpus: the positions of random games, from start to end */
+	@Setup
+	public void setup() {
+		Board[] positions = othellosaurus.Benchmark.gamePositions(CORPUS_GAMES,
+				othellosaurus.Benchmark.SEED);
+		if(positions.length < CORPUS_SIZE) {
+			throw new IllegalStateException("Only " + positions.length + " corpus positions");
+		}
+		corpus = new Board[CORPUS_SIZE];
+		moves = new int[CORPUS_SIZE];
+		for(int i = 0; i < CORPUS_SIZE; i++) {
+			corpus[i] = positions[i];
+			long legal = corpus[i].getMoves(corpus[i].mover);
+			moves[i] = (legal == 0 ? Board.PASS : Utils.bitScanForward(legal));
+		}
+		evaluator = new Evaluator();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public void getMoves(Blackhole bh) {
+		for(Board b : corpus) {
+			bh.consume(b.getMoves(b.mover));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public void newBoard(Blackhole bh) {
+		for(int i = 0; i < CORPUS_SIZE; i++) {
+			bh.consume(new Board(corpus[i], moves[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public void hashCode(Blackhole bh) {
+		for(Board b : corpus) {
+			bh.consume(b.hashCode());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public void bitCount(Blackhole bh) {
+		for(Board b : corpus) {
+			bh.consume(Utils.bitCount(b.pieces[b.mover]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public void bitScanForward(Blackhole bh) {
+		for(Board b : corpus) {
+			bh.consume(Utils.bitScanForward(b.pieces[b.mover]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public void eval(Blackhole bh) {
+		for(Board b : corpus) {
+			bh.consume(evaluator.eval(b));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public void stableDisks(Blackhole bh) {
+		for(Board b : corpus) {
+			bh.consume(Evaluator.stableDisks(b, b.mover));
+		}
+	}
+}
@@ -1,105 +1,571 @@
-package othellosaurus;
-
-/**
- * Computer Othello player
- */
-public class Agent {
-	public final Evaluator e; // determines this agent's static
-					          // evaluation function
-	public final int maxDepth; // the maximum ply this agent is allowed to search
-	public long maxTime; // the maximum time in seconds this agent is
-						 // allowed to think for a move.
-	private final boolean negaScout; // whether to use the negaScout algorithm
-
-	/** Creates a new agent */
-	public Agent(Evaluator e, boolean negaScout,
-			int maxDepth, double maxTime) {
-		this.e = e;
-		this.negaScout = negaScout;
-		this.maxDepth = maxDepth;
-		this.maxTime = (long)(maxTime * 1e9);
-	}
-
-	/** Searches and returns the agent's move */
-	public int getMove(Board b, GraphicUI g) {
-		g.locked = true;
-		g.clearComputerOutput();
-
-		Node n = new Node(b, (byte)0);
-		long startTime = System.nanoTime();
-		int bestMove = 0;
-
-		// reset node fields
-		Node.nodesSearched = 0;
-		Node.evaluator = e;
-		Node.transpositionTable.clear();
-
-		// iterative deepening search
-		for(Node.searchDepth = 1; Node.searchDepth <= maxDepth; Node.searchDepth++) {
-			// stop evaluating if we're past our time limit
-			Node.stopTime = startTime + maxTime;
-			if(System.nanoTime() > Node.stopTime) {
-				break;
-			}
-			Node.doneStaticEval = false;
-			Node.setDecisionPlies(negaScout);
-
-			// search
-			n.b.legalMoves = n.b.getMoves(n.b.mover);
-			n.negaMax(-Node.WIN_MULTIPLIER * 128, Node.WIN_MULTIPLIER * 128);
-
-			if(System.nanoTime() > Node.stopTime) {
-				break;
-			}
-
-			bestMove = n.bestMove;
-
-			// print <current search depth> (<score of best move>) <optimal line>
-			String s = Integer.toString(Node.searchDepth);
-			if(Math.abs(n.bestValue) >= Node.WIN_MULTIPLIER) {
-			    // game is solved: print winner and final score with optimal play
-				s += (" (" + (
-					n.bestValue * (n.b.mover == Board.WHITE ? 1 : -1) > 0 ?
-					"White wins with score " : "Black wins with score ")
-					+ (Math.abs(n.bestValue / Node.WIN_MULTIPLIER)) + ") ");
-			} else {
-				if(b.numPieces + Node.searchDepth >= 56) {
-					// endgame: score printed so a stable disc is worth 1 point
-					s += String.format(" (%1.2fe) ", n.bestValue /
-									((float)Node.evaluator.weightsForNumPieces[Math.min(63, b.numPieces + Node.searchDepth)][4]));
-				} else {
-					// rest of the game: score printed so owning a corner is worth 1 point
-					s += String.format(" (%1.2f) ", n.bestValue /
-								(100.0 * Node.evaluator.weightsForNumPieces[b.numPieces + Node.searchDepth][3]));
-				}
-			}
-			Node m = n;
-			while(m.bestChild != null) {
-				s += (Utils.getMoveNotation(m.bestMove) + " ");
-				m = m.bestChild;
-			}
-			g.extendOutput(s);
-
-			// last search did no static evaluations so can stop searching
-			// (the remainder of the game is solved)
-			if(!Node.doneStaticEval) {
-				break;
-			}
-		}
-
-		long endTime = System.nanoTime();
-		g.extendOutput("NODES SEARCHED: " + Node.nodesSearched);
-		g.extendOutput(String.format("SECONDS IN THOUGHT: %.3f\n",
-				((endTime - startTime) / 1e9)));
-		g.extendOutput(String.format("NODES PER SECOND: %.0f\n",
-				(1e9 * Node.nodesSearched / (endTime - startTime))));
-
-		n.b.legalMoves = n.b.getMoves(n.b.mover);
-		int move = bestMove;
-		int x = move % 8;
-	    int y = move / 8;
-	    g.tryMove(x, y);
-	    g.locked = false;
-	    return bestMove;
-	}
-}
+package othellosaurus;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Computer Othello player
+ * All of an agent's search state belongs to it, so different agents can
+ * search at the same time on different threads. A single agent searches
+ * one position at a time.
+ *
+ * getMove searches on the calling thread; startSearch searches on a new
+ * thread and returns a handle to stop or cancel the search with. Either
+ * way, the agent's SearchListeners are told of each result on a separate
+ * notifier thread.
+ *
+ * When pondering, the agent keeps searching after it moves, assuming the
+ * opponent plays the reply it predicted. If the opponent does, the search
+ * becomes the search for the agent's next move; otherwise it is cancelled.
+ */
+public class Agent {
+	public static final int DEFAULT_CANONICAL_PIECES = 12;
+	public static final int DEFAULT_ASPIRATION_WINDOW = 0;
+	public static final int ASPIRATION_GROWTH = 4; // factor by which a failed
+												   // aspiration window widens
+
+	public final Evaluator e; // determines this agent's static
+					          // evaluation function
+	public final int maxDepth; // the maximum ply this agent is allowed to search
+	public long maxTime; // the maximum time in seconds this agent is
+						 // allowed to think for a move.
+	private final boolean negaScout; // whether to use the negaScout algorithm
+	public final int threads; // number of threads to search with
+	public TranspositionTable transpositionTable; // table shared by this
+												  // agent's search threads
+	public int endgameEmpties = EndgameSolver.DEFAULT_EMPTIES; // number of empty
+							// squares at which to solve the rest of the game exactly
+	public int canonicalPieces = DEFAULT_CANONICAL_PIECES; // max pieces at which
+								// symmetric positions share transposition table entries
+	public EvalCache evalCache = new EvalCache(EvalCache.DEFAULT_KB); // static
+								// evaluations shared by this agent's searches, or null
+	public int aspirationWindow = DEFAULT_ASPIRATION_WINDOW; // half width (in
+								// the evaluator's units) of the window each
+								// iteration starts with, or 0 for a full window
+	public ProbCut probCut; // Multi-ProbCut parameters fit to e, or null to
+							// search without forward pruning
+	public double probCutThreshold = ProbCut.DEFAULT_THRESHOLD; // deviations
+							// from a predicted value at which ProbCut cuts
+	private final EndgameSolver solver = new EndgameSolver();
+	public OpeningBook book; // book to play from before searching, or null
+	public boolean ponder; // whether to search during the opponent's turn
+	private volatile Ponderer ponderer; // search of the predicted reply, or null
+	private volatile Search current; // search in progress, or null
+	private volatile boolean stopped; // whether to stop the search in progress
+	private Thread searchThread; // thread of the last startSearch, or null
+
+	private final CopyOnWriteArrayList<SearchListener> listeners =
+		new CopyOnWriteArrayList<SearchListener>();
+	private ExecutorService notifier; // calls listeners, created with the first
+
+	public int bestValue; // score of the last move found for the player to move
+
+	public long nodesSearched; // nodes searched by all threads for the last move
+	public int depthReached; // depth of the last completed search, or 0 if the
+							 // move came from the book or the endgame solver
+	public boolean ponderHit; // whether the last move was found by pondering
+	public SearchStats stats; // statistics of the main thread's search for the
+							  // last move, empty if it came from the book or
+							  // the endgame solver
+	public final EngineMetrics metrics = new EngineMetrics(this); // recent
+							  // moves' speed and depth, for JMX
+
+	/** Creates a new single-threaded agent */
+	public Agent(Evaluator e, boolean negaScout,
+			int maxDepth, double maxTime) {
+		this(e, negaScout, maxDepth, maxTime, 1);
+	}
+
+	/**
+	 * Creates a new agent. When threads is more than one, helper threads
+	 * search the same position and share their results with the main search
+	 * through the transposition table (Lazy SMP).
+	 */
+	public Agent(Evaluator e, boolean negaScout,
+			int maxDepth, double maxTime, int threads) {
+		this.e = e;
+		this.negaScout = negaScout;
+		this.maxDepth = maxDepth;
+		this.maxTime = (long)(maxTime * 1e9);
+		this.threads = threads;
+		this.transpositionTable = new TranspositionTable(TranspositionTable.DEFAULT_MB);
+	}
+
+	/** Adds a listener to tell of the results of this agent's searches */
+	public synchronized void addListener(SearchListener l) {
+		if(notifier == null) {
+			notifier = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "search-notifier");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		listeners.add(l);
+	}
+
+	/** Removes a listener added by addListener */
+	public void removeListener(SearchListener l) {
+		listeners.remove(l);
+	}
+
+	/**
+	 * Starts searching for the agent's move on a new thread and returns a
+	 * handle on the search. A search the agent is still running is stopped
+	 * first.
+	 */
+	public SearchHandle startSearch(Board b) {
+		if(searchThread != null) {
+			stop();
+			try {
+				searchThread.join();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		stopped = false;
+		SearchHandle h = new SearchHandle(this, new Board(b));
+		searchThread = new Thread(h, "search");
+		searchThread.setDaemon(true);
+		searchThread.start();
+		return h;
+	}
+
+	/** Makes the search in progress stop as soon as possible */
+	public void stop() {
+		stopped = true;
+		solver.stop();
+		Search s = current;
+		if(s != null) {
+			s.stop();
+		}
+	}
+
+	/** Searches and returns the agent's move */
+	public int getMove(Board b) {
+		if(Thread.currentThread() != searchThread) {
+			stopped = false;
+		}
+		int move = search(b);
+		current = null;
+		return move;
+	}
+
+	/** Searches for the agent's move, telling listeners of its progress */
+	private int search(Board b) {
+		long startTime = System.nanoTime();
+		SearchEvents.Finish finish = new SearchEvents.Finish();
+		finish.begin();
+		nodesSearched = 0;
+		depthReached = 0;
+		stats = new SearchStats();
+
+		// finish the search of this position if we were pondering it,
+		// otherwise cancel pondering
+		ponderHit = (ponderer != null && ponderer.b.zobrist == b.zobrist
+				&& ponderer.b.pieces[Board.WHITE] == b.pieces[Board.WHITE]);
+		if(ponderHit) {
+			current = ponderer.search;
+		}
+		Search ponderSearch = stopPondering(ponderHit && !stopped ? startTime + maxTime : 0);
+
+		SearchEvents.Start start = new SearchEvents.Start();
+		if(start.shouldCommit()) {
+			start.numPieces = b.numPieces;
+			start.maxDepth = maxDepth;
+			start.maxTime = maxTime;
+			start.threads = threads;
+			start.ponderHit = ponderHit;
+			start.commit();
+		}
+
+		// play straight from the book if we know the position
+		// (book moves are stored for the canonical orientation of a position)
+		int t = b.canonicalTransform();
+		int i = (book == null ? -1 : book.find(b.transformedHash(t)));
+		int bookMove = (i < 0 ? -1 : Utils.transformSquare(book.move(i), Utils.inverseTransform[t]));
+		if(i >= 0 && (b.legalMoves & (1L << bookMove)) != 0) {
+			bestValue = book.score(i);
+			String s = "BOOK" + scoreString(b, bestValue, 0) + Utils.getMoveNotation(bookMove);
+			progress(b, 0, bestValue, new int[] {bookMove}, startTime, s);
+			done(b, bookMove, startTime, s);
+			SearchEvents.BookHit hit = new SearchEvents.BookHit();
+			if(hit.shouldCommit()) {
+				hit.numPieces = b.numPieces;
+				hit.move = Utils.getMoveNotation(bookMove);
+				hit.score = bestValue;
+				hit.commit();
+			}
+			finish(finish, bookMove, "book", 0, startTime);
+			return bookMove;
+		}
+
+		// few enough squares left: try to solve the rest of the game exactly,
+		// leaving the rest of the time for a normal search if that fails
+		int empties = 64 - b.numPieces;
+		boolean solved = false;
+		if(empties <= endgameEmpties && !stopped) {
+			solved = solver.solve(b, startTime + maxTime / 2);
+			nodesSearched += solver.nodesSearched;
+		}
+
+		int bestMove;
+		long evals = 0;
+		String source = (solved ? "endgame" : ponderHit ? "ponder" : "search");
+		if(solved) {
+			bestMove = solver.bestMove;
+			bestValue = solver.bestValue * Node.WIN_MULTIPLIER;
+			progress(b, empties, bestValue, new int[] {bestMove}, startTime,
+				empties + (solver.bestValue == 0 ? " (Draw) " :
+				scoreString(b, bestValue, empties)) + Utils.getMoveNotation(bestMove));
+		} else {
+			Search search = ponderSearch;
+			if(ponderHit) {
+				progress(b, search.completedDepth, search.bestValue,
+					new int[] {search.bestMove}, startTime,
+					"PONDER HIT " + search.completedDepth + scoreString(b, search.bestValue,
+					search.completedDepth) + Utils.getMoveNotation(search.bestMove));
+			} else {
+				search = new Search(0, e, transpositionTable, startTime + maxTime);
+				current = search;
+				if(stopped) {
+					search.stop();
+				}
+				deepen(b, search, startTime);
+			}
+			bestMove = search.bestMove;
+			bestValue = search.bestValue;
+			depthReached = search.completedDepth;
+			nodesSearched += search.nodesSearched;
+			evals = search.evals;
+			stats = search.stats;
+
+			// search the predicted reply until the opponent moves
+			if(ponder && !stopped && search.predictedReply != Search.NO_REPLY) {
+				startPondering(b, bestMove, search.predictedReply);
+			}
+		}
+
+		long endTime = System.nanoTime();
+		if(!listeners.isEmpty()) {
+			done(b, bestMove, startTime, "NODES SEARCHED: " + nodesSearched
+				+ String.format("\nSECONDS IN THOUGHT: %.3f", ((endTime - startTime) / 1e9))
+				+ String.format("\nNODES PER SECOND: %.0f", (1e9 * nodesSearched / (endTime - startTime))));
+		}
+
+		finish(finish, bestMove, source, evals, startTime);
+		b.legalMoves = b.getMoves(b.mover);
+		return bestMove;
+	}
+
+	/**
+	 * Adds the move found by the search started at startTime to the
+	 * agent's metrics, and commits the search's finish event and the
+	 * transposition table's occupancy if they are being recorded
+	 */
+	private void finish(SearchEvents.Finish event, int move, String source,
+			long evals, long startTime) {
+		metrics.add(nodesSearched, evals, System.nanoTime() - startTime, depthReached);
+		if(event.shouldCommit()) {
+			event.move = Utils.getMoveNotation(move);
+			event.value = bestValue;
+			event.source = source;
+			event.depthReached = depthReached;
+			event.nodes = nodesSearched;
+			event.commit();
+		}
+		SearchEvents.TableOccupancy occupancy = new SearchEvents.TableOccupancy();
+		if(occupancy.shouldCommit()) {
+			occupancy.capacity = transpositionTable.capacity();
+			occupancy.fillRatio = transpositionTable.fillRatio();
+			occupancy.currentRatio = transpositionTable.currentRatio();
+			occupancy.commit();
+		}
+	}
+
+	/**
+	 * Iterative deepening search of b until the search's stop time, telling
+	 * listeners of each completed iteration unless startTime is 0 (when
+	 * pondering). The results of the deepest completed iteration and the
+	 * nodes searched by all threads are left in the search.
+	 */
+	private void deepen(Board b, Search search, long startTime) {
+		search.canonicalPieces = canonicalPieces;
+		search.evalCache = evalCache;
+		search.probCut = probCut;
+		search.probCutThreshold = probCutThreshold;
+		Node n = search.root(b);
+
+		transpositionTable.newSearch();
+
+		// start helper threads
+		Helper[] helpers = new Helper[threads - 1];
+		for(int i = 0; i < helpers.length; i++) {
+			Search s = new Search(i + 1, e, transpositionTable, search.stopTime);
+			s.canonicalPieces = canonicalPieces;
+			s.evalCache = evalCache;
+			s.probCut = probCut;
+			s.probCutThreshold = probCutThreshold;
+			helpers[i] = new Helper(s, new Board(b));
+			helpers[i].start();
+		}
+
+		// iterative deepening search
+		for(search.searchDepth = 1; search.searchDepth <= maxDepth; search.searchDepth++) {
+			// stop evaluating if we're past our time limit
+			if(System.nanoTime() > search.stopTime) {
+				break;
+			}
+			search.staticEvals = 0;
+			search.setDecisionPlies(negaScout);
+			int depth = search.searchDepth;
+			long iterationStart = System.nanoTime();
+			SearchEvents.Iteration event = new SearchEvents.Iteration();
+			event.begin();
+
+			// search
+			searchRoot(n, search);
+
+			long iterationEnd = System.nanoTime();
+			boolean completed = (search.searchDepth != 0 && iterationEnd <= search.stopTime);
+			search.stats.record(search, depth, completed, iterationEnd - iterationStart);
+			if(event.shouldCommit()) {
+				SearchStats.Iteration it = search.stats.iterations.get(search.stats.iterations.size() - 1);
+				event.depth = depth;
+				event.completed = completed;
+				event.pondering = (startTime == 0);
+				if(completed) {
+					event.bestMove = Utils.getMoveNotation(n.bestMove);
+					event.value = n.bestValue;
+				}
+				event.nodes = it.nodes;
+				event.evals = it.evals;
+				event.firstMoveCutoffRate = it.firstMoveCutoffRate();
+				event.commit();
+			}
+			if(!completed) {
+				break;
+			}
+
+			search.completedDepth = search.searchDepth;
+			search.bestMove = n.bestMove;
+			search.bestValue = n.bestValue;
+			search.predictedReply = (n.pvLength > 1 ? n.pv[1] : Search.NO_REPLY);
+
+			// report <current search depth> (<score of best move>) <optimal line>
+			if(startTime != 0 && !listeners.isEmpty()) {
+				String s = search.searchDepth + scoreString(b, n.bestValue, search.searchDepth);
+				for(int i = 0; i < n.pvLength; i++) {
+					s += (Utils.getMoveNotation(n.pv[i]) + " ");
+				}
+				progress(b, search.searchDepth, n.bestValue, Arrays.copyOf(n.pv, n.pvLength),
+						startTime, s);
+			}
+
+			// last search did no static evaluations so can stop searching
+			// (the remainder of the game is solved)
+			if(search.staticEvals == 0) {
+				break;
+			}
+		}
+
+		// stop helper threads
+		for(Helper h : helpers) {
+			h.s.stop();
+			try {
+				h.join();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			search.nodesSearched += h.s.nodesSearched;
+			search.evals += h.s.evals;
+		}
+	}
+
+	/**
+	 * Searches the root n for the current iteration. Once an iteration has
+	 * given a value, the next starts with a window of aspirationWindow on
+	 * either side of it, which prunes more of the tree. When the value falls
+	 * outside the window it is searched again with the failed side widened
+	 * ASPIRATION_GROWTH times, then opened fully. Solved values are not
+	 * worth guessing around, so they get a full window.
+	 */
+	private void searchRoot(Node n, Search search) {
+		int infinity = Node.WIN_MULTIPLIER * 128;
+		int guess = search.bestValue;
+		int window = aspirationWindow;
+		int alpha = -infinity;
+		int beta = infinity;
+		if(window > 0 && search.completedDepth != 0 && Math.abs(guess) < Node.WIN_MULTIPLIER) {
+			alpha = guess - window;
+			beta = guess + window;
+		}
+		while(true) {
+			n.b.legalMoves = n.b.getMoves(n.b.mover);
+			int v = n.negaMax(alpha, beta);
+			if(search.searchDepth == 0 || (v > alpha && v < beta)) {
+				return;
+			}
+			search.researches++;
+			window = Math.min(window * ASPIRATION_GROWTH, Node.WIN_MULTIPLIER);
+			if(v <= alpha) {
+				alpha = (window >= Node.WIN_MULTIPLIER ? -infinity : guess - window);
+			} else {
+				beta = (window >= Node.WIN_MULTIPLIER ? infinity : guess + window);
+			}
+		}
+	}
+
+	/**
+	 * Starts searching the position after the agent plays move from b and
+	 * the opponent plays reply. Positions the book or the endgame solver
+	 * will answer are not worth pondering.
+	 */
+	private void startPondering(Board b, int move, int reply) {
+		Board next = new Board(b, move);
+		if(next.gameOver || (reply == Board.PASS ? next.legalMoves != 0
+				: (next.legalMoves & (1L << reply)) == 0)) {
+			return;
+		}
+		next = new Board(next, reply);
+		if(64 - next.numPieces <= endgameEmpties
+				|| (book != null && book.find(next.canonicalKey()) >= 0)) {
+			return;
+		}
+		ponderer = new Ponderer(next);
+		ponderer.start();
+	}
+
+	/**
+	 * Stops pondering at the given time (0 to stop now) and returns the
+	 * search that was pondering once it has finished, or null if the agent
+	 * was not pondering
+	 */
+	public Search stopPondering(long stopTime) {
+		Ponderer p = ponderer;
+		if(p == null) {
+			return null;
+		}
+		ponderer = null;
+		p.search.stopTime = stopTime;
+		if(stopped) {
+			p.search.stop();
+		}
+		try {
+			p.join();
+		} catch(InterruptedException ex) {
+			p.search.stop();
+			Thread.currentThread().interrupt();
+		}
+		return p.search;
+	}
+
+	/** Returns the score of a search of b to the given depth for printing */
+	private String scoreString(Board b, int value, int depth) {
+		if(Math.abs(value) >= Node.WIN_MULTIPLIER) {
+		    // game is solved: print winner and final score with optimal play
+			return (" (" + (
+				value * (b.mover == Board.WHITE ? 1 : -1) > 0 ?
+				"White wins with score " : "Black wins with score ")
+				+ (Math.abs(value / Node.WIN_MULTIPLIER)) + ") ");
+		} else {
+			return e.scoreString(value, Math.min(63, b.numPieces + depth));
+		}
+	}
+
+	/** Tells listeners of a new result of the search of b started at startTime */
+	private void progress(Board b, int depth, int value, int[] pv, long startTime, String text) {
+		if(listeners.isEmpty()) {
+			return;
+		}
+		final SearchInfo info = new SearchInfo(new Board(b), depth, value, pv,
+				nodesSearched + (current == null ? 0 : current.nodesSearched),
+				System.nanoTime() - startTime, text);
+		notifyListeners(new Runnable() {
+			public void run() {
+				for(SearchListener l : listeners) {
+					l.progress(info);
+				}
+			}
+		});
+	}
+
+	/** Tells listeners the search of b started at startTime found move */
+	private void done(Board b, int move, long startTime, String text) {
+		if(listeners.isEmpty()) {
+			return;
+		}
+		final SearchInfo info = new SearchInfo(new Board(b), depthReached, bestValue,
+				new int[] {move}, nodesSearched, System.nanoTime() - startTime, text);
+		info.stats = stats;
+		notifyListeners(new Runnable() {
+			public void run() {
+				for(SearchListener l : listeners) {
+					l.done(info);
+				}
+			}
+		});
+	}
+
+	/** Runs r on the notifier thread */
+	private synchronized void notifyListeners(Runnable r) {
+		notifier.execute(r);
+	}
+
+	/**
+	 * Thread searching the position the agent expects to face next, until
+	 * stopPondering gives it a stop time
+	 */
+	private class Ponderer extends Thread {
+		private final Board b;
+		private final Search search;
+
+		/** Creates a new ponderer searching b */
+		public Ponderer(Board b) {
+			this.b = b;
+			this.search = new Search(0, e, transpositionTable, Long.MAX_VALUE);
+			setDaemon(true);
+		}
+
+		public void run() {
+			deepen(b, search, 0);
+		}
+	}
+
+	/**
+	 * Helper thread for parallel search. Helpers run their own iterative
+	 * deepening until stopped, odd helpers starting one ply deeper than the
+	 * main thread so helpers are spread over neighbouring depths.
+	 */
+	private class Helper extends Thread {
+		private final Search s;
+		private final Node n;
+
+		/** Creates a new helper searching b */
+		public Helper(Search s, Board b) {
+			this.s = s;
+			this.n = s.root(b);
+			setDaemon(true);
+		}
+
+		public void run() {
+			for(s.searchDepth = (byte)(1 + s.id % 2); s.searchDepth <= maxDepth; s.searchDepth++) {
+				if(System.nanoTime() > s.stopTime) {
+					break;
+				}
+				s.staticEvals = 0;
+				s.setDecisionPlies(negaScout);
+
+				n.b.legalMoves = n.b.getMoves(n.b.mover);
+				n.negaMax(-Node.WIN_MULTIPLIER * 128, Node.WIN_MULTIPLIER * 128);
+
+				if(s.searchDepth == 0 || s.staticEvals == 0) {
+					break;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,891 @@
+package othellosaurus;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Benchmarks for the search. Run with the name of a benchmark, e.g.
+ *   java othellosaurus.Benchmark table [depth]
+ *   java othellosaurus.Benchmark smp [depth] [max threads]
+ *   java othellosaurus.Benchmark games [depth] [max games]
+ *   java othellosaurus.Benchmark alloc [depth]
+ *   java othellosaurus.Benchmark movegen
+ *   java othellosaurus.Benchmark stability
+ *   java othellosaurus.Benchmark eval
+ *   java othellosaurus.Benchmark endgame [max empties]
+ *   java othellosaurus.Benchmark symmetry [depth]
+ *   java othellosaurus.Benchmark reuse [depth]
+ *   java othellosaurus.Benchmark ponder [milliseconds per move]
+ *   java othellosaurus.Benchmark patterns [depth] [pattern weights file]
+ *   java othellosaurus.Benchmark evalcache [depth]
+ *   java othellosaurus.Benchmark stats [depth]
+ *   java othellosaurus.Benchmark aspiration [depth]
+ *   java othellosaurus.Benchmark probcut [depth] [ProbCut parameters file (probcut.txt)]
+ * All benchmarks search the same positions, generated by random play from a
+ * fixed seed, so results are comparable between runs.
+ */
+public class Benchmark {
+	public static final long SEED = 473;
+	public static final int NUM_POSITIONS = 20;
+
+	/** Runs the benchmark named by the first argument */
+	public static void main(String[] args) {
+		String name = args.length > 0 ? args[0] : "table";
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+		Board[] positions = positions(NUM_POSITIONS, SEED);
+
+		if(name.equals("table")) {
+			table(positions, depth);
+		} else if(name.equals("smp")) {
+			int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+			smp(positions, depth, maxThreads);
+		} else if(name.equals("games")) {
+			int maxGames = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+			games(positions, depth, maxGames);
+		} else if(name.equals("alloc")) {
+			alloc(positions, depth);
+		} else if(name.equals("movegen")) {
+			movegen(gamePositions(2000, SEED));
+		} else if(name.equals("eval")) {
+			eval(gamePositions(2000, SEED));
+		} else if(name.equals("stability")) {
+			stability(gamePositions(2000, SEED));
+		} else if(name.equals("endgame")) {
+			endgame(args.length > 1 ? Integer.parseInt(args[1]) : 16);
+		} else if(name.equals("ponder")) {
+			ponder(positions, args.length > 1 ? Integer.parseInt(args[1]) : 100);
+		} else if(name.equals("reuse")) {
+			reuse(positions, depth);
+		} else if(name.equals("symmetry")) {
+			symmetry(depth);
+		} else if(name.equals("evalcache")) {
+			evalCache(positions, depth);
+		} else if(name.equals("probcut")) {
+			probCut(positions, depth, args.length > 2 ? args[2] : "probcut.txt");
+		} else if(name.equals("aspiration")) {
+			aspiration(positions, depth);
+		} else if(name.equals("stats")) {
+			stats(positions, depth);
+		} else if(name.equals("patterns")) {
+			patterns(positions, depth, args.length > 2 ? args[2] : null);
+		} else {
+			System.out.println("Unknown benchmark: " + name);
+		}
+	}
+
+	/**
+	 * Returns count positions reached by random play from the start position.
+	 * Positions are spread over the midgame (20 to 44 pieces).
+	 */
+	public static Board[] positions(int count, long seed) {
+		Random random = new Random(seed);
+		Board[] positions = new Board[count];
+		for(int i = 0; i < count; i++) {
+			int numPieces = 20 + random.nextInt(25);
+			Board b = new Board();
+			while(b.numPieces < numPieces) {
+				if(b.gameOver) {
+					b = new Board();
+				} else if(b.legalMoves == 0) {
+					b = new Board(b, Board.PASS);
+				} else {
+					// play a random legal move
+					long moves = b.legalMoves;
+					for(int j = random.nextInt(Utils.bitCount(moves)); j > 0; j--) {
+						moves &= moves - 1;
+					}
+					b = new Board(b, Utils.bitScanForward(moves));
+				}
+			}
+			positions[i] = b;
+		}
+		return positions;
+	}
+
+	/**
+	 * Returns count positions with the given number of empty squares
+	 * reached by random play from the start position
+	 */
+	public static Board[] endgamePositions(int count, int empties, long seed) {
+		Random random = new Random(seed);
+		Board[] positions = new Board[count];
+		for(int i = 0; i < count; i++) {
+			Board b = new Board();
+			while(b.numPieces < 64 - empties || b.legalMoves == 0) {
+				if(b.gameOver) {
+					b = new Board();
+				} else if(b.legalMoves == 0) {
+					b = new Board(b, Board.PASS);
+				} else {
+					long moves = b.legalMoves;
+					for(int j = random.nextInt(Utils.bitCount(moves)); j > 0; j--) {
+						moves &= moves - 1;
+					}
+					b = new Board(b, Utils.bitScanForward(moves));
+				}
+			}
+			positions[i] = b;
+		}
+		return positions;
+	}
+
+	/**
+	 * Returns every position of the given number of games of random play
+	 * from the start position, covering all phases of the game
+	 */
+	public static Board[] gamePositions(int games, long seed) {
+		Random random = new Random(seed);
+		ArrayList<Board> positions = new ArrayList<Board>();
+		for(int i = 0; i < games; i++) {
+			Board b = new Board();
+			while(!b.gameOver) {
+				positions.add(b);
+				if(b.legalMoves == 0) {
+					b = new Board(b, Board.PASS);
+					continue;
+				}
+				long moves = b.legalMoves;
+				for(int j = random.nextInt(Utils.bitCount(moves)); j > 0; j--) {
+					moves &= moves - 1;
+				}
+				b = new Board(b, Utils.bitScanForward(moves));
+			}
+			positions.add(b);
+		}
+		return positions.toArray(new Board[positions.size()]);
+	}
+
+	/**
+	 * Searches each position to the given depth and prints nodes per second
+	 * and time spent in garbage collection. Returns the total seconds taken.
+	 */
+	public static double run(String label, Board[] positions, Agent a) {
+		long gcTime = -gcTime();
+		long startTime = System.nanoTime();
+		long nodes = nodes(positions, a);
+		long time = System.nanoTime() - startTime;
+		gcTime += gcTime();
+		System.out.println(String.format("%-12s nodes: %d  seconds: %.3f  nodes/sec: %.0f  gc ms: %d",
+				label, nodes, time / 1e9, 1e9 * nodes / time, gcTime));
+		return time / 1e9;
+	}
+
+	/** Returns the total milliseconds spent in garbage collection so far */
+	public static long gcTime() {
+		long time = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	/**
+	 * Searches the positions to the given depth without an evaluation cache
+	 * and with caches of increasing size, printing nodes per second and the
+	 * fraction of evaluations found in the cache
+	 */
+	public static void evalCache(Board[] positions, int depth) {
+		run("warmup", positions, new Agent(new Evaluator(), false, depth, 1e6));
+		int[] sizes = {0, 64, EvalCache.DEFAULT_KB, 4096};
+		for(int i = 0; i < 2; i++) {
+			for(int kilobytes : sizes) {
+				Agent a = new Agent(new Evaluator(), false, depth, 1e6);
+				a.evalCache = (kilobytes == 0 ? null : new EvalCache(kilobytes));
+				run(kilobytes == 0 ? "no cache" : kilobytes + " KB", positions, a);
+				if(kilobytes != 0) {
+					System.out.println(String.format("%-12s hit rate: %.3f", "",
+							a.evalCache.hitRate()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Searches the positions to the given depth with a full window and with
+	 * aspiration windows of increasing width, printing the time to reach the
+	 * depth, the root searches repeated and how many best moves differ from
+	 * the full window's. Each position is searched from an empty
+	 * transposition table, as in nodes.
+	 */
+	public static void aspiration(Board[] positions, int depth) {
+		run("warmup", positions, new Agent(new Evaluator(), false, depth, 1e6));
+		int[] windows = {0, 250, 500, 1000, 2000};
+		int[] fullMoves = new int[positions.length];
+		for(int i = 0; i < 2; i++) {
+			for(int window : windows) {
+				Agent a = new Agent(new Evaluator(), false, depth, 1e6);
+				a.aspirationWindow = window;
+				long researches = 0;
+				int differences = 0;
+				long nodes = 0;
+				long startTime = System.nanoTime();
+				for(int j = 0; j < positions.length; j++) {
+					a.transpositionTable.clear();
+					int move = a.getMove(new Board(positions[j]));
+					nodes += a.nodesSearched;
+					for(SearchStats.Iteration it : a.stats.iterations) {
+						researches += it.researches;
+					}
+					if(window == 0) {
+						fullMoves[j] = move;
+					} else if(move != fullMoves[j]) {
+						differences++;
+					}
+				}
+				long time = System.nanoTime() - startTime;
+				System.out.println(String.format(
+						"%-12s nodes: %d  seconds: %.3f  re-searches: %d  moves differing: %d",
+						window == 0 ? "full window" : "window " + window, nodes, time / 1e9,
+						researches, differences));
+			}
+		}
+	}
+
+	/**
+	 * Searches the positions to the given depth without ProbCut and with
+	 * ProbCut at several thresholds, printing time to depth and how many
+	 * best moves differ from those of the search without ProbCut. Each
+	 * position is searched from an empty transposition table, as in nodes.
+	 */
+	public static void probCut(Board[] positions, int depth, String parametersFile) {
+		ProbCut pc;
+		try {
+			pc = ProbCut.read(new File(parametersFile));
+		} catch(IOException ex) {
+			throw new RuntimeException(ex);
+		}
+		run("warmup", positions, new Agent(new Evaluator(), false, depth, 1e6));
+		double[] thresholds = {0, 2.5, 2, 1.5, 1};
+		int[] fullMoves = new int[positions.length];
+		for(int i = 0; i < 2; i++) {
+			for(double threshold : thresholds) {
+				Agent a = new Agent(new Evaluator(), false, depth, 1e6);
+				if(threshold != 0) {
+					a.probCut = pc;
+					a.probCutThreshold = threshold;
+				}
+				int differences = 0;
+				long nodes = 0;
+				long startTime = System.nanoTime();
+				for(int j = 0; j < positions.length; j++) {
+					a.transpositionTable.clear();
+					int move = a.getMove(new Board(positions[j]));
+					nodes += a.nodesSearched;
+					if(threshold == 0) {
+						fullMoves[j] = move;
+					} else if(move != fullMoves[j]) {
+						differences++;
+					}
+				}
+				long time = System.nanoTime() - startTime;
+				System.out.println(String.format("%-12s nodes: %d  seconds: %.3f  moves differing: %d",
+						threshold == 0 ? "no probcut" : "cut " + threshold, nodes, time / 1e9,
+						differences));
+			}
+		}
+	}
+
+	/**
+	 * Searches the positions to the given depth and prints the search
+	 * statistics of each iteration totalled over the positions, to show how
+	 * well move ordering and the transposition table work at each depth
+	 */
+	public static void stats(Board[] positions, int depth) {
+		run("warmup", positions, new Agent(new Evaluator(), false, depth, 1e6));
+		Agent a = new Agent(new Evaluator(), false, depth, 1e6);
+		SearchStats total = new SearchStats();
+		for(Board b : positions) {
+			a.getMove(new Board(b));
+			total.add(a.stats);
+		}
+		System.out.print(total);
+	}
+
+	/**
+	 * Compares the pattern evaluator with the default evaluator: evaluations
+	 * per second over positions from all phases of the game, then nodes per
+	 * second searching positions to the given depth. Without a weights file
+	 * the pattern evaluator has all weights 0, which is as fast.
+	 */
+	public static void patterns(Board[] positions, int depth, String weightsFile) {
+		Evaluator pattern;
+		try {
+			pattern = weightsFile == null ? new PatternEvaluator(
+				new short[PatternEvaluator.NUM_PHASES][PatternEvaluator.NUM_WEIGHTS])
+				: PatternEvaluator.read(new File(weightsFile));
+		} catch(IOException ex) {
+			throw new RuntimeException(ex);
+		}
+		Evaluator[] evaluators = {new Evaluator(), pattern};
+		String[] labels = {"default", "patterns"};
+
+		Board[] evalPositions = gamePositions(200, SEED);
+		for(int i = 0; i < 3; i++) {
+			for(int j = 0; j < evaluators.length; j++) {
+				long sum = 0;
+				long startTime = System.nanoTime();
+				for(int k = 0; k < 20; k++) {
+					for(Board b : evalPositions) {
+						sum += evaluators[j].eval(b);
+					}
+				}
+				long time = System.nanoTime() - startTime;
+				System.out.println(String.format("%-12s evals/sec: %.0f  (checksum %d)",
+						labels[j], 20e9 * evalPositions.length / time, sum));
+			}
+		}
+		for(int j = 0; j < evaluators.length; j++) {
+			run("warmup", positions, new Agent(evaluators[j], false, depth, 1e6));
+			run(labels[j], positions, new Agent(evaluators[j], false, depth, 1e6));
+		}
+	}
+
+	/**
+	 * Compares the packed transposition table against a HashMap of boxed
+	 * entries (the previous implementation)
+	 */
+	public static void table(Board[] positions, int depth) {
+		Agent a = new Agent(new Evaluator(), false, depth, 1e6);
+		TranspositionTable packed = a.transpositionTable;
+		for(int i = 0; i < 2; i++) {
+			a.transpositionTable = new MapTable();
+			run("map", positions, a);
+			a.transpositionTable = packed;
+			run("packed", positions, a);
+		}
+	}
+
+	/**
+	 * Measures time to depth and nodes per second as the number of search
+	 * threads doubles from 1 to maxThreads
+	 */
+	public static void smp(Board[] positions, int depth, int maxThreads) {
+		// warm up
+		run("warmup", positions, new Agent(new Evaluator(), false, depth, 1e6));
+
+		double baseTime = 0;
+		for(int threads = 1; threads <= maxThreads; threads *= 2) {
+			Agent a = new Agent(new Evaluator(), false, depth, 1e6, threads);
+			double time = run(threads + " threads", positions, a);
+			if(threads == 1) {
+				baseTime = time;
+			}
+			System.out.println(String.format("             time to depth %d speedup: %.2f",
+					depth, baseTime / time));
+		}
+	}
+
+	/**
+	 * Searches the positions with several independent agents at once, one
+	 * thread each, as the number of agents doubles from 1 to maxGames. Prints
+	 * the combined nodes per second and checks every agent searched exactly
+	 * as many nodes as an agent searching alone.
+	 */
+	public static void games(final Board[] positions, final int depth, int maxGames) {
+		Agent alone = new Agent(new Evaluator(), false, depth, 1e6);
+		run("warmup", positions, alone);
+		final long expectedNodes = nodes(positions, alone);
+
+		for(int games = 1; games <= maxGames; games *= 2) {
+			final long[] nodes = new long[games];
+			Thread[] threads = new Thread[games];
+			long startTime = System.nanoTime();
+			for(int i = 0; i < games; i++) {
+				final int game = i;
+				threads[i] = new Thread(new Runnable() {
+					public void run() {
+						nodes[game] = nodes(positions, new Agent(new Evaluator(), false, depth, 1e6));
+					}
+				});
+				threads[i].start();
+			}
+			long totalNodes = 0;
+			boolean consistent = true;
+			for(int i = 0; i < games; i++) {
+				try {
+					threads[i].join();
+				} catch(InterruptedException e) {
+					return;
+				}
+				totalNodes += nodes[i];
+				consistent &= (nodes[i] == expectedNodes);
+			}
+			long time = System.nanoTime() - startTime;
+			System.out.println(String.format("%-12s nodes/sec: %.0f  same nodes as alone: %b",
+					games + " games", 1e9 * totalNodes / time, consistent));
+		}
+	}
+
+	/**
+	 * Searches each position with a and returns the number of nodes searched.
+	 * The positions are from unrelated games, so each search starts from an
+	 * empty transposition table.
+	 */
+	public static long nodes(Board[] positions, Agent a) {
+		long nodes = 0;
+		for(Board b : positions) {
+			a.transpositionTable.clear();
+			a.getMove(new Board(b));
+			nodes += a.nodesSearched;
+		}
+		return nodes;
+	}
+
+	/**
+	 * Measures the memory allocated by searches to increasing depths. Search
+	 * only allocates when it starts, so bytes per search should stay flat
+	 * as the number of nodes grows.
+	 */
+	public static void alloc(Board[] positions, int depth) {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(!(threads instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("Allocation counting is not supported by this JVM");
+			return;
+		}
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean)threads;
+		long thread = Thread.currentThread().getId();
+
+		run("warmup", positions, new Agent(new Evaluator(), false, depth, 1e6));
+		for(int d = Math.max(1, depth - 4); d <= depth; d++) {
+			Agent a = new Agent(new Evaluator(), false, d, 1e6);
+			a.getMove(new Board(positions[0]));
+			long bytes = -allocations.getThreadAllocatedBytes(thread);
+			long nodes = nodes(positions, a);
+			bytes += allocations.getThreadAllocatedBytes(thread);
+			System.out.println(String.format("depth %-6d nodes: %d  bytes/search: %d  bytes/node: %.3f",
+					d, nodes, bytes / positions.length, (double)bytes / nodes));
+		}
+	}
+
+	/**
+	 * Checks every move generator produces exactly the same moves and flips
+	 * as the original loop generator on the given positions, then prints
+	 * how many move and flip generations per second each can do
+	 */
+	public static void movegen(Board[] positions) {
+		MoveGenerator[] generators = {new LoopMoveGenerator(),
+			new KoggeStoneMoveGenerator(), new LineTableMoveGenerator()};
+		MoveGenerator reference = generators[0];
+
+		// bitboards of each position and every legal move from them
+		int numMoves = 0;
+		for(Board b : positions) {
+			numMoves += Utils.bitCount(b.legalMoves);
+		}
+		long[] p = new long[positions.length];
+		long[] o = new long[positions.length];
+		long[] moveP = new long[numMoves];
+		long[] moveO = new long[numMoves];
+		int[] moves = new int[numMoves];
+		for(int i = 0, j = 0; i < positions.length; i++) {
+			p[i] = positions[i].pieces[positions[i].mover];
+			o[i] = positions[i].pieces[positions[i].opponent];
+			for(long m = positions[i].legalMoves; m != 0; m &= m - 1, j++) {
+				moveP[j] = p[i];
+				moveO[j] = o[i];
+				moves[j] = Utils.bitScanForward(m);
+			}
+		}
+
+		for(MoveGenerator g : generators) {
+			String name = g.getClass().getSimpleName();
+			int mismatches = 0;
+			for(int i = 0; i < p.length; i++) {
+				if(g.getMoves(p[i], o[i]) != reference.getMoves(p[i], o[i])
+						|| g.getMoves(o[i], p[i]) != reference.getMoves(o[i], p[i])) {
+					mismatches++;
+				}
+			}
+			for(int j = 0; j < numMoves; j++) {
+				if(g.getFlips(moveP[j], moveO[j], moves[j])
+						!= reference.getFlips(moveP[j], moveO[j], moves[j])) {
+					mismatches++;
+				}
+			}
+
+			// throughput, best of several rounds so the JIT has warmed up
+			double movesPerSecond = 0;
+			double flipsPerSecond = 0;
+			long checksum = 0;
+			for(int round = 0; round < 10; round++) {
+				long startTime = System.nanoTime();
+				for(int i = 0; i < p.length; i++) {
+					checksum += g.getMoves(p[i], o[i]);
+				}
+				long time = System.nanoTime() - startTime;
+				movesPerSecond = Math.max(movesPerSecond, 1e9 * p.length / time);
+
+				startTime = System.nanoTime();
+				for(int j = 0; j < numMoves; j++) {
+					checksum += g.getFlips(moveP[j], moveO[j], moves[j]);
+				}
+				time = System.nanoTime() - startTime;
+				flipsPerSecond = Math.max(flipsPerSecond, 1e9 * numMoves / time);
+			}
+			System.out.println(String.format("%-24s mismatches: %d  getMoves/sec: %.0f  getFlips/sec: %.0f  (%d)",
+					name, mismatches, movesPerSecond, flipsPerSecond, checksum & 1));
+		}
+	}
+
+	/**
+	 * Checks the one pass evaluation against the evaluation computed feature
+	 * by feature, and compares their speed
+	 */
+	public static void eval(Board[] positions) {
+		Evaluator e = new Evaluator();
+		int mismatches = 0;
+		for(Board b : positions) {
+			if(e.eval(b) != e.evalByFeatures(b)) {
+				mismatches++;
+			}
+		}
+		System.out.println("mismatches: " + mismatches);
+
+		// throughput, best of several rounds so the JIT has warmed up
+		double[] perSecond = new double[2];
+		long checksum = 0;
+		for(int round = 0; round < 10; round++) {
+			for(int method = 0; method < 2; method++) {
+				long startTime = System.nanoTime();
+				for(Board b : positions) {
+					checksum += (method == 0 ? e.evalByFeatures(b) : e.eval(b));
+				}
+				long time = System.nanoTime() - startTime;
+				perSecond[method] = Math.max(perSecond[method], 1e9 * positions.length / time);
+			}
+		}
+		System.out.println(String.format("evals/sec  by feature: %.0f  one pass: %.0f  (%d)",
+				perSecond[0], perSecond[1], checksum & 1));
+	}
+
+	/**
+	 * Compares the stable piece counts from the corners (the earlier method),
+	 * from edge tables and full lines only, and from the fixed point of getStable (the stability feature of
+	 * evaluations), by speed, by the stable pieces each finds at each stage
+	 * of the game, and by how often each finds fewer of a player's pieces
+	 * than the corners (a bug for getStable)
+	 */
+	public static void stability(Board[] positions) {
+		int[] stages = {20, 30, 40, 50, 60, 65};
+		long[][] found = new long[3][stages.length];
+		int[] count = new int[stages.length];
+		int missedLines = 0, missedFull = 0;
+		for(Board b : positions) {
+			int stage = 0;
+			while(b.numPieces >= stages[stage]) {
+				stage++;
+			}
+			count[stage]++;
+			for(int p = 0; p < 2; p++) {
+				int corners = Evaluator.stableDisksFromCorners(b, p);
+				int lines = Long.bitCount(
+						Evaluator.getLineStable(b.pieces[p], b.pieces[p ^ 1]) & b.pieces[p]);
+				int full = Evaluator.stableDisks(b, p);
+				found[0][stage] += corners;
+				found[1][stage] += lines;
+				found[2][stage] += full;
+				if(corners > lines) {
+					missedLines++;
+				}
+				if(corners > full) {
+					missedFull++;
+				}
+			}
+		}
+		System.out.println(String.format("%-10s %12s %12s %12s", "pieces", "corners", "lines", "full"));
+		for(int stage = 0; stage < stages.length; stage++) {
+			System.out.println(String.format("%-10s %12.2f %12.2f %12.2f",
+					(stage == 0 ? 4 : stages[stage - 1]) + "-" + (stages[stage] - 1),
+					(double)found[0][stage] / Math.max(1, count[stage]),
+					(double)found[1][stage] / Math.max(1, count[stage]),
+					(double)found[2][stage] / Math.max(1, count[stage])));
+		}
+		System.out.println(String.format(
+				"positions and players where fewer are found than by corners  lines: %d  full: %d",
+				missedLines, missedFull));
+
+		// throughput of one player's stable pieces and of the stability
+		// feature (both players), best of several rounds so the JIT has warmed up
+		double[][] perSecond = new double[2][3];
+		long checksum = 0;
+		for(int round = 0; round < 10; round++) {
+			for(int method = 0; method < 3; method++) {
+				long startTime = System.nanoTime();
+				for(Board b : positions) {
+					long p = b.pieces[b.mover];
+					long o = b.pieces[b.opponent];
+					checksum += (method == 0 ? Evaluator.stableDisksFromCorners(b, b.mover)
+							: method == 1 ? Long.bitCount(Evaluator.getLineStable(p, o) & p)
+							: Evaluator.stableDisks(b, b.mover));
+				}
+				long time = System.nanoTime() - startTime;
+				perSecond[0][method] = Math.max(perSecond[0][method], 1e9 * positions.length / time);
+
+				startTime = System.nanoTime();
+				for(Board b : positions) {
+					long p = b.pieces[b.mover];
+					long o = b.pieces[b.opponent];
+					if(method == 0) {
+						checksum += Evaluator.stableDisksFromCorners(b, b.mover)
+								  - Evaluator.stableDisksFromCorners(b, b.opponent);
+					} else if(method == 1) {
+						long stable = Evaluator.getLineStable(p, o);
+						checksum += Long.bitCount(stable & p) - Long.bitCount(stable & o);
+					} else {
+						checksum += Evaluator.stability(b);
+					}
+				}
+				time = System.nanoTime() - startTime;
+				perSecond[1][method] = Math.max(perSecond[1][method], 1e9 * positions.length / time);
+			}
+		}
+		System.out.println(String.format(
+				"one player calls/sec    corners: %.0f  lines: %.0f  full: %.0f",
+				perSecond[0][0], perSecond[0][1], perSecond[0][2]));
+		System.out.println(String.format(
+				"both players calls/sec  corners: %.0f  lines: %.0f  full: %.0f  (%d)",
+				perSecond[1][0], perSecond[1][1], perSecond[1][2], checksum & 1));
+	}
+
+	/**
+	 * Solves positions with an increasing number of empties with both the
+	 * endgame solver and the midgame search (deepening until the game is
+	 * solved), checking they agree on the final score and printing the time
+	 * each takes
+	 */
+	public static void endgame(int maxEmpties) {
+		Evaluator e = new Evaluator();
+		TranspositionTable table = new TranspositionTable(TranspositionTable.DEFAULT_MB);
+		EndgameSolver solver = new EndgameSolver();
+		for(int empties = 8; empties <= maxEmpties; empties++) {
+			Board[] positions = endgamePositions(10, empties, SEED);
+			long solverTime = 0, solverNodes = 0, searchTime = 0, searchNodes = 0;
+			int mismatches = 0;
+			for(Board b : positions) {
+				long startTime = System.nanoTime();
+				solver.solve(new Board(b), Long.MAX_VALUE);
+				solverTime += System.nanoTime() - startTime;
+				solverNodes += solver.nodesSearched;
+
+				// midgame search, deepening until no static evaluations are done
+				startTime = System.nanoTime();
+				table.clear();
+				Search search = new Search(0, e, table, Long.MAX_VALUE);
+				Node n = search.root(new Board(b));
+				for(search.searchDepth = 1; search.searchDepth < 127; search.searchDepth++) {
+					search.staticEvals = 0;
+					search.setDecisionPlies(false);
+					n.b.legalMoves = n.b.getMoves(n.b.mover);
+					n.negaMax(-Node.WIN_MULTIPLIER * 128, Node.WIN_MULTIPLIER * 128);
+					if(search.staticEvals == 0) {
+						break;
+					}
+				}
+				searchTime += System.nanoTime() - startTime;
+				searchNodes += search.nodesSearched;
+				if(n.bestValue / Node.WIN_MULTIPLIER != solver.bestValue) {
+					mismatches++;
+				}
+			}
+			System.out.println(String.format("empties %-3d solver: %8.3fs %11d nodes  search: %8.3fs %11d nodes  mismatches: %d",
+					empties, solverTime / 1e9, solverNodes, searchTime / 1e9, searchNodes, mismatches));
+		}
+	}
+
+	/**
+	 * Measures time to depth on move N+2 of a game with the transposition
+	 * table kept from the agent's search of move N and with an empty table.
+	 * Both sides' moves are played by the agent, as in a game against itself.
+	 */
+	public static void reuse(Board[] positions, int depth) {
+		run("warmup", positions, new Agent(new Evaluator(), false, depth, 1e6));
+		Agent a = new Agent(new Evaluator(), false, depth, 1e6);
+		for(int i = 0; i < 2; i++) {
+			for(boolean keep : new boolean[] {false, true}) {
+				long nodes = 0, time = 0;
+				for(Board b : positions) {
+					// move N and the opponent's reply
+					a.transpositionTable.clear();
+					Board next = new Board(b, a.getMove(new Board(b)));
+					if(next.legalMoves == 0) {
+						continue;
+					}
+					next = new Board(next, a.getMove(new Board(next)));
+					if(!keep) {
+						a.transpositionTable.clear();
+					}
+
+					// move N+2
+					long startTime = System.nanoTime();
+					a.getMove(new Board(next));
+					time += System.nanoTime() - startTime;
+					nodes += a.nodesSearched;
+				}
+				System.out.println(String.format("%-12s move N+2 nodes: %d  seconds: %.3f",
+						keep ? "kept table" : "new table", nodes, time / 1e9));
+			}
+		}
+	}
+
+	/**
+	 * Plays games between two agents with a fixed time per move, first with
+	 * neither pondering and then with the first pondering, and prints the
+	 * average depth each completes and how often the pondering agent
+	 * predicted the reply. Then measures how long cancelling pondering takes.
+	 * With fewer cores than threads, pondering takes time from the opponent.
+	 */
+	public static void ponder(Board[] positions, int millis) {
+		System.out.println("processors: " + Runtime.getRuntime().availableProcessors());
+		for(boolean ponder : new boolean[] {false, true}) {
+			Agent a = new Agent(new Evaluator(), false, 100, millis / 1000.0);
+			Agent b = new Agent(new Evaluator(), false, 100, millis / 1000.0);
+			a.ponder = ponder;
+			long depthA = 0, depthB = 0;
+			int movesA = 0, movesB = 0, hits = 0;
+			for(Board start : positions) {
+				a.transpositionTable.clear();
+				b.transpositionTable.clear();
+				Board board = new Board(start);
+				while(!board.gameOver) {
+					if(board.legalMoves == 0) {
+						board = new Board(board, Board.PASS);
+						continue;
+					}
+					boolean turnA = (board.mover == start.mover);
+					Agent agent = turnA ? a : b;
+					board = new Board(board, agent.getMove(new Board(board)));
+					if(agent.depthReached == 0) {
+						continue; // book or endgame solver move
+					} else if(turnA) {
+						depthA += agent.depthReached;
+						movesA++;
+						hits += agent.ponderHit ? 1 : 0;
+					} else {
+						depthB += agent.depthReached;
+						movesB++;
+					}
+				}
+				a.stopPondering(0);
+			}
+			System.out.println(String.format("%-12s depth: %.2f  opponent depth: %.2f  ponder hits: %d/%d",
+					ponder ? "ponder" : "no ponder", (double)depthA / movesA,
+					(double)depthB / movesB, hits, movesA));
+		}
+
+		// cancel pondering a while after moving, as on a ponder miss
+		Agent a = new Agent(new Evaluator(), false, 100, millis / 1000.0);
+		a.ponder = true;
+		long maxCancel = 0;
+		for(Board b : positions) {
+			a.getMove(new Board(b));
+			try {
+				Thread.sleep(millis);
+			} catch(InterruptedException e) {
+				return;
+			}
+			long startTime = System.nanoTime();
+			a.stopPondering(0);
+			maxCancel = Math.max(maxCancel, System.nanoTime() - startTime);
+		}
+		System.out.println(String.format("max cancel ms: %.3f", maxCancel / 1e6));
+	}
+
+	/**
+	 * Checks that all 8 symmetries of a position share its canonical key and
+	 * have the matching legal moves, counts distinct zobrist and canonical
+	 * keys in the first plies of the game (the positions an opening book
+	 * stores) and compares searches of early positions with and without
+	 * canonical transposition table keys
+	 */
+	public static void symmetry(int depth) {
+		int mismatches = 0;
+		for(Board b : gamePositions(100, SEED)) {
+			long key = b.canonicalKey();
+			for(int t = 0; t < Utils.NUM_TRANSFORMS; t++) {
+				Board c = new Board(b);
+				c.pieces[Board.WHITE] = Utils.transform(b.pieces[Board.WHITE], t);
+				c.pieces[Board.BLACK] = Utils.transform(b.pieces[Board.BLACK], t);
+				c.zobrist = c.computeHash();
+				if(c.canonicalKey() != key || c.zobrist != b.transformedHash(t)
+						|| c.getMoves(c.mover) != Utils.transform(b.getMoves(b.mover), t)) {
+					mismatches++;
+				}
+			}
+		}
+		System.out.println("symmetry mismatches: " + mismatches);
+
+		// distinct positions by ply
+		HashSet<Long> zobristKeys = new HashSet<Long>();
+		HashSet<Long> canonicalKeys = new HashSet<Long>();
+		ArrayList<Board> ply = new ArrayList<Board>();
+		ply.add(new Board());
+		for(int i = 0; i <= 8; i++) {
+			ArrayList<Board> nextPly = new ArrayList<Board>();
+			for(Board b : ply) {
+				if(!zobristKeys.add(b.zobrist)) {
+					continue;
+				}
+				canonicalKeys.add(b.canonicalKey());
+				for(long m = b.legalMoves; m != 0; m &= m - 1) {
+					nextPly.add(new Board(b, Utils.bitScanForward(m)));
+				}
+			}
+			ply = nextPly;
+			System.out.println(String.format("ply %d  positions: %8d  canonical: %7d  (%.1fx)",
+					i, zobristKeys.size(), canonicalKeys.size(),
+					zobristKeys.size() / (double)canonicalKeys.size()));
+		}
+
+		// searches from the first few plies
+		Board[] early = new Board[NUM_POSITIONS];
+		Random random = new Random(SEED);
+		for(int i = 0; i < early.length; i++) {
+			Board b = new Board();
+			for(int j = random.nextInt(4); j > 0; j--) {
+				long moves = b.legalMoves;
+				for(int k = random.nextInt(Utils.bitCount(moves)); k > 0; k--) {
+					moves &= moves - 1;
+				}
+				b = new Board(b, Utils.bitScanForward(moves));
+			}
+			early[i] = b;
+		}
+		Agent a = new Agent(new Evaluator(), false, depth, 1e6);
+		for(int i = 0; i < 2; i++) {
+			a.canonicalPieces = 0;
+			run("zobrist keys", early, a);
+			a.canonicalPieces = Agent.DEFAULT_CANONICAL_PIECES;
+			run("canonical keys", early, a);
+		}
+	}
+
+	/** Transposition table backed by a HashMap, for comparison */
+	private static class MapTable extends TranspositionTable {
+		private final HashMap<Integer, Long> map = new HashMap<Integer, Long>(1000000, 0.5f);
+
+		public MapTable() {
+			super(0);
+		}
+
+		public long probe(long key) {
+			if(map.containsKey((int)key)) {
+				return map.get((int)key);
+			}
+			return NONE;
+		}
+
+		public void store(long key, int v, byte type, int depth, int move) {
+			map.put((int)key, pack(v, type, depth, move));
+		}
+
+		public void clear() {
+			map.clear();
+		}
+	}
+}
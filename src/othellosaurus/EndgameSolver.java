@@ -0,0 +1,445 @@
+package othellosaurus;
+
+/**
+ * Exact solver for the last empty squares of the game.
+ * Unlike Node, it works directly on a pair of bitboards and scores
+ * positions by their final disc difference, so it does no static
+ * evaluation and allocates nothing while solving.
+ *  Search uses:
+ *  - A linked list of empty squares, ordered from best to worst square
+ *  - Fastest-first ordering (fewest replies for the opponent) when many
+ *    squares are empty
+ *  - Parity ordering (squares in quadrants with an odd number of empties
+ *    first) when few squares are empty
+ *  - Hand-specialized solvers for the last 4, 3, 2 and 1 empties
+ */
+public class EndgameSolver {
+	// default number of empty squares at which Agent switches to the solver
+	public static final int DEFAULT_EMPTIES = 16;
+	// min number of empties at which to use fastest-first ordering
+	public static final int FASTEST_FIRST_EMPTIES = 7;
+
+	private static final int HEAD = 64; // head of the empty square list
+	private static final int NO_MOVE = -65; // lower than any disc difference
+
+	// squares from best to worst (by Evaluator.SQUARE_SCORE)
+	private static final int[] SQUARE_ORDER = new int[64];
+	// bit for the quadrant containing each square
+	private static final int[] QUADRANT = new int[64];
+	// squares adjacent to each square; a move needs an opponent piece there
+	private static final long[] NEIGHBOURS = new long[64];
+
+	static {
+		for(int i = 0; i < 64; i++) {
+			SQUARE_ORDER[i] = i;
+			int x = i % 8;
+			int y = i / 8;
+			QUADRANT[i] = 1 << ((x / 4) + 2 * (y / 4));
+			for(int dx = -1; dx <= 1; dx++) {
+				for(int dy = -1; dy <= 1; dy++) {
+					if((dx != 0 || dy != 0) && x + dx >= 0 && x + dx < 8
+							&& y + dy >= 0 && y + dy < 8) {
+						NEIGHBOURS[i] |= (1L << Utils.getIndex(x + dx, y + dy));
+					}
+				}
+			}
+		}
+		// insertion sort so squares of equal value stay in index order
+		for(int i = 1; i < 64; i++) {
+			int square = SQUARE_ORDER[i];
+			int j = i;
+			while(j > 0 && squareScore(SQUARE_ORDER[j - 1]) < squareScore(square)) {
+				SQUARE_ORDER[j] = SQUARE_ORDER[j - 1];
+				j--;
+			}
+			SQUARE_ORDER[j] = square;
+		}
+	}
+
+	public int bestMove; // best move found by the last solve
+	public int bestValue; // final disc difference for the mover with perfect play
+	public long nodesSearched; // number of nodes visited by the last solve
+
+	private final MoveGenerator generator = Board.moveGenerator;
+	private volatile long stopTime; // when to stop solving
+	private boolean stopped; // whether the solve ran out of time
+
+	// doubly linked list of empty squares
+	private final int[] next = new int[65];
+	private final int[] previous = new int[65];
+	private int parity; // bit q is set iff quadrant q has an odd number of empties
+
+	// moves, their flips and their ordering scores for each number of empties
+	private final int[][] moves = new int[64][Search.MAX_MOVES];
+	private final long[][] moveFlips = new long[64][Search.MAX_MOVES];
+	private final int[][] moveScores = new int[64][Search.MAX_MOVES];
+
+	/**
+	 * Solves b exactly, setting bestMove and bestValue. Returns false if
+	 * the solve was stopped because it went past stopTime.
+	 */
+	public boolean solve(Board b, long stopTime) {
+		this.stopTime = stopTime;
+		stopped = false;
+		nodesSearched = 0;
+
+		long p = b.pieces[b.mover];
+		long o = b.pieces[b.opponent];
+		int empties = initEmpties(p | o);
+
+		bestMove = Board.PASS;
+		bestValue = NO_MOVE;
+		int numMoves = orderMoves(p, o, empties);
+		if(numMoves == 0) {
+			bestValue = -solve(o, p, -64, 64, empties, true);
+			return !stopped;
+		}
+
+		// search the first move with a full window and the rest with a null
+		// window, re-searching any move that beats the best so far
+		int[] list = moves[empties];
+		long[] flips = moveFlips[empties];
+		for(int i = 0; i < numMoves; i++) {
+			int move = list[i];
+			long np = p | flips[i] | (1L << move);
+			long no = o & ~flips[i];
+			remove(move);
+			int v;
+			if(i == 0) {
+				v = -solve(no, np, -64, 64, empties - 1, false);
+			} else {
+				v = -solve(no, np, -bestValue - 1, -bestValue, empties - 1, false);
+				if(v > bestValue && !stopped) {
+					v = -solve(no, np, -64, -v + 1, empties - 1, false);
+				}
+			}
+			restore(move);
+			if(stopped) {
+				return false;
+			}
+			if(v > bestValue) {
+				bestValue = v;
+				bestMove = move;
+			}
+		}
+		return true;
+	}
+
+	/** Makes the solve in progress stop as soon as possible */
+	public void stop() {
+		stopTime = 0;
+	}
+
+	/** Returns the final disc difference of p and o with perfect play */
+	private int solve(long p, long o, int alpha, int beta, int empties, boolean passed) {
+		if(empties <= 4) {
+			return solveLast(p, o, alpha, beta, empties);
+		}
+
+		nodesSearched++;
+		if((nodesSearched & 1023) == 0 && System.nanoTime() > stopTime) {
+			stopped = true;
+		}
+		if(stopped) {
+			return 0;
+		}
+
+		if(empties >= FASTEST_FIRST_EMPTIES) {
+			return solveFastestFirst(p, o, alpha, beta, empties, passed);
+		}
+
+		// parity ordering: squares in odd quadrants, then squares in even ones
+		int best = NO_MOVE;
+		for(int odd = 1; odd >= 0; odd--) {
+			for(int x = next[HEAD]; x != HEAD; x = next[x]) {
+				if(((parity & QUADRANT[x]) != 0 ? 1 : 0) != odd
+						|| (o & NEIGHBOURS[x]) == 0) {
+					continue;
+				}
+				long f = generator.getFlips(p, o, x);
+				if(f == 0) {
+					continue;
+				}
+				remove(x);
+				int v = -solve(o & ~f, p | f | (1L << x), -beta, -alpha, empties - 1, false);
+				restore(x);
+				if(v > best) {
+					best = v;
+					if(v > alpha) {
+						alpha = v;
+						if(alpha >= beta) {
+							return best;
+						}
+					}
+				}
+			}
+		}
+
+		if(best == NO_MOVE) {
+			return pass(p, o, alpha, beta, empties, passed);
+		}
+		return best;
+	}
+
+	/** Searches moves from p in order of fewest replies for o */
+	private int solveFastestFirst(long p, long o, int alpha, int beta, int empties, boolean passed) {
+		int numMoves = orderMoves(p, o, empties);
+		if(numMoves == 0) {
+			return pass(p, o, alpha, beta, empties, passed);
+		}
+
+		int[] list = moves[empties];
+		long[] flips = moveFlips[empties];
+		int best = NO_MOVE;
+		for(int i = 0; i < numMoves; i++) {
+			int x = list[i];
+			remove(x);
+			int v = -solve(o & ~flips[i], p | flips[i] | (1L << x), -beta, -alpha, empties - 1, false);
+			restore(x);
+			if(stopped) {
+				return 0;
+			}
+			if(v > best) {
+				best = v;
+				if(v > alpha) {
+					alpha = v;
+					if(alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Fills in the move list for the given number of empties with p's legal
+	 * moves, fewest replies for o first. Returns the number of moves.
+	 */
+	private int orderMoves(long p, long o, int empties) {
+		int[] list = moves[empties];
+		long[] flips = moveFlips[empties];
+		int[] scores = moveScores[empties];
+		long legal = generator.getMoves(p, o);
+		int numMoves = 0;
+		for(int x = next[HEAD]; x != HEAD; x = next[x]) {
+			if((legal & (1L << x)) == 0) {
+				continue;
+			}
+			long f = generator.getFlips(p, o, x);
+			long replies = generator.getMoves(o & ~f, p | f | (1L << x));
+			int score = Utils.bitCount(replies) + Utils.bitCount(replies & Utils.corners);
+
+			// insertion sort, keeping square order among equal scores
+			int j = numMoves++;
+			while(j > 0 && scores[j - 1] > score) {
+				list[j] = list[j - 1];
+				flips[j] = flips[j - 1];
+				scores[j] = scores[j - 1];
+				j--;
+			}
+			list[j] = x;
+			flips[j] = f;
+			scores[j] = score;
+		}
+		return numMoves;
+	}
+
+	/** Handles p having no legal moves */
+	private int pass(long p, long o, int alpha, int beta, int empties, boolean passed) {
+		if(passed) {
+			// neither player can move: the game is over
+			return Utils.bitCount(p) - Utils.bitCount(o);
+		}
+		return -solve(o, p, -beta, -alpha, empties, true);
+	}
+
+	/**
+	 * Collects the last (at most 4) empty squares, those in odd quadrants
+	 * first, and solves with the specialized solvers
+	 */
+	private int solveLast(long p, long o, int alpha, int beta, int empties) {
+		int x1 = 0, x2 = 0, x3 = 0, x4 = 0;
+		int n = 0;
+		for(int odd = 1; odd >= 0; odd--) {
+			for(int x = next[HEAD]; x != HEAD; x = next[x]) {
+				if(((parity & QUADRANT[x]) != 0 ? 1 : 0) == odd) {
+					switch(n++) {
+						case 0: x1 = x; break;
+						case 1: x2 = x; break;
+						case 2: x3 = x; break;
+						default: x4 = x;
+					}
+				}
+			}
+		}
+		switch(empties) {
+			case 4: return solve4(p, o, alpha, beta, x1, x2, x3, x4, false);
+			case 3: return solve3(p, o, alpha, beta, x1, x2, x3, false);
+			case 2: return solve2(p, o, alpha, beta, x1, x2, false);
+			case 1: return solve1(p, o, x1);
+			default: return Utils.bitCount(p) - Utils.bitCount(o);
+		}
+	}
+
+	/** Solves a position with empties x1, x2, x3 and x4 */
+	private int solve4(long p, long o, int alpha, int beta,
+			int x1, int x2, int x3, int x4, boolean passed) {
+		nodesSearched++;
+		int best = NO_MOVE;
+		long f;
+		if((o & NEIGHBOURS[x1]) != 0 && (f = generator.getFlips(p, o, x1)) != 0) {
+			best = -solve3(o & ~f, p | f | (1L << x1), -beta, -alpha, x2, x3, x4, false);
+			if(best >= beta) {
+				return best;
+			}
+			alpha = Math.max(alpha, best);
+		}
+		if((o & NEIGHBOURS[x2]) != 0 && (f = generator.getFlips(p, o, x2)) != 0) {
+			int v = -solve3(o & ~f, p | f | (1L << x2), -beta, -alpha, x1, x3, x4, false);
+			if(v >= beta) {
+				return v;
+			}
+			best = Math.max(best, v);
+			alpha = Math.max(alpha, v);
+		}
+		if((o & NEIGHBOURS[x3]) != 0 && (f = generator.getFlips(p, o, x3)) != 0) {
+			int v = -solve3(o & ~f, p | f | (1L << x3), -beta, -alpha, x1, x2, x4, false);
+			if(v >= beta) {
+				return v;
+			}
+			best = Math.max(best, v);
+			alpha = Math.max(alpha, v);
+		}
+		if((o & NEIGHBOURS[x4]) != 0 && (f = generator.getFlips(p, o, x4)) != 0) {
+			int v = -solve3(o & ~f, p | f | (1L << x4), -beta, -alpha, x1, x2, x3, false);
+			best = Math.max(best, v);
+		}
+
+		if(best == NO_MOVE) {
+			if(passed) {
+				return Utils.bitCount(p) - Utils.bitCount(o);
+			}
+			return -solve4(o, p, -beta, -alpha, x1, x2, x3, x4, true);
+		}
+		return best;
+	}
+
+	/** Solves a position with empties x1, x2 and x3 */
+	private int solve3(long p, long o, int alpha, int beta,
+			int x1, int x2, int x3, boolean passed) {
+		nodesSearched++;
+		int best = NO_MOVE;
+		long f;
+		if((o & NEIGHBOURS[x1]) != 0 && (f = generator.getFlips(p, o, x1)) != 0) {
+			best = -solve2(o & ~f, p | f | (1L << x1), -beta, -alpha, x2, x3, false);
+			if(best >= beta) {
+				return best;
+			}
+			alpha = Math.max(alpha, best);
+		}
+		if((o & NEIGHBOURS[x2]) != 0 && (f = generator.getFlips(p, o, x2)) != 0) {
+			int v = -solve2(o & ~f, p | f | (1L << x2), -beta, -alpha, x1, x3, false);
+			if(v >= beta) {
+				return v;
+			}
+			best = Math.max(best, v);
+			alpha = Math.max(alpha, v);
+		}
+		if((o & NEIGHBOURS[x3]) != 0 && (f = generator.getFlips(p, o, x3)) != 0) {
+			int v = -solve2(o & ~f, p | f | (1L << x3), -beta, -alpha, x1, x2, false);
+			best = Math.max(best, v);
+		}
+
+		if(best == NO_MOVE) {
+			if(passed) {
+				return Utils.bitCount(p) - Utils.bitCount(o);
+			}
+			return -solve3(o, p, -beta, -alpha, x1, x2, x3, true);
+		}
+		return best;
+	}
+
+	/** Solves a position with empties x1 and x2 */
+	private int solve2(long p, long o, int alpha, int beta,
+			int x1, int x2, boolean passed) {
+		nodesSearched++;
+		int best = NO_MOVE;
+		long f;
+		if((o & NEIGHBOURS[x1]) != 0 && (f = generator.getFlips(p, o, x1)) != 0) {
+			best = -solve1(o & ~f, p | f | (1L << x1), x2);
+			if(best >= beta) {
+				return best;
+			}
+		}
+		if((o & NEIGHBOURS[x2]) != 0 && (f = generator.getFlips(p, o, x2)) != 0) {
+			int v = -solve1(o & ~f, p | f | (1L << x2), x1);
+			best = Math.max(best, v);
+		}
+
+		if(best == NO_MOVE) {
+			if(passed) {
+				return Utils.bitCount(p) - Utils.bitCount(o);
+			}
+			return -solve2(o, p, -beta, -alpha, x1, x2, true);
+		}
+		return best;
+	}
+
+	/** Solves a position with the single empty square x */
+	private int solve1(long p, long o, int x) {
+		nodesSearched++;
+		// 63 pieces on the board, so p's disc difference is 2 * |p| - 63
+		int pieces = Utils.bitCount(p);
+		long f = generator.getFlips(p, o, x);
+		if(f != 0) {
+			return 2 * (pieces + Utils.bitCount(f)) - 62;
+		}
+		f = generator.getFlips(o, p, x);
+		if(f != 0) {
+			return 2 * (pieces - Utils.bitCount(f)) - 64;
+		}
+		return 2 * pieces - 63;
+	}
+
+	/** Fills the empty square list and parity from the occupied squares */
+	private int initEmpties(long occupied) {
+		int empties = 0;
+		int last = HEAD;
+		parity = 0;
+		for(int i = 0; i < 64; i++) {
+			int x = SQUARE_ORDER[i];
+			if((occupied & (1L << x)) == 0) {
+				next[last] = x;
+				previous[x] = last;
+				last = x;
+				parity ^= QUADRANT[x];
+				empties++;
+			}
+		}
+		next[last] = HEAD;
+		previous[HEAD] = last;
+		return empties;
+	}
+
+	/** Removes x from the empty square list */
+	private void remove(int x) {
+		next[previous[x]] = next[x];
+		previous[next[x]] = previous[x];
+		parity ^= QUADRANT[x];
+	}
+
+	/** Puts x, which was just removed, back in the empty square list */
+	private void restore(int x) {
+		next[previous[x]] = x;
+		previous[next[x]] = x;
+		parity ^= QUADRANT[x];
+	}
+
+	/** Returns the value of controlling the given square */
+	private static int squareScore(int square) {
+		int x = square % 8;
+		int y = square / 8;
+		return Evaluator.SQUARE_SCORE[Math.min(x, 7 - x)][Math.min(y, 7 - y)];
+	}
+}
@@ -0,0 +1,93 @@
+package othellosaurus;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live metrics of an Agent for JMX, averaged over its last WINDOW moves.
+ * The agent adds each move when it is found, so keeping the metrics costs
+ * nothing during search; register makes them visible to JMX clients, e.g.
+ * JConsole attached to a running GraphicUI.
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+	public static final int WINDOW = 32; // moves averaged over
+
+	private final Agent agent;
+
+	// the last WINDOW moves, in a ring
+	private final long[] nodes = new long[WINDOW];
+	private final long[] evals = new long[WINDOW];
+	private final long[] nanos = new long[WINDOW];
+	private final int[] depths = new int[WINDOW]; // 0 for book and endgame moves
+	private long moves;
+
+	/** Creates metrics for the given agent */
+	public EngineMetrics(Agent agent) {
+		this.agent = agent;
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server under the name
+	 * othellosaurus:type=Agent,name=<name>
+	 */
+	public void register(String name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName("othellosaurus:type=Agent,name=" + name));
+		} catch(JMException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/**
+	 * Adds a move found after searching the given nodes with the given
+	 * static evaluations for the given time, reaching the given depth
+	 */
+	public synchronized void add(long moveNodes, long moveEvals, long moveNanos, int depth) {
+		int i = (int)(moves % WINDOW);
+		nodes[i] = moveNodes;
+		evals[i] = moveEvals;
+		nanos[i] = moveNanos;
+		depths[i] = depth;
+		moves++;
+	}
+
+	public synchronized double getNodesPerSecond() {
+		return perSecond(nodes);
+	}
+
+	public synchronized double getEvalsPerSecond() {
+		return perSecond(evals);
+	}
+
+	public synchronized double getAverageDepth() {
+		int sum = 0;
+		int searched = 0;
+		for(int i = 0; i < Math.min(moves, WINDOW); i++) {
+			if(depths[i] != 0) {
+				sum += depths[i];
+				searched++;
+			}
+		}
+		return searched == 0 ? 0 : (double)sum / searched;
+	}
+
+	public double getTableFillRatio() {
+		return agent.transpositionTable.fillRatio();
+	}
+
+	public synchronized long getMoves() {
+		return moves;
+	}
+
+	/** Returns the sum of counts over the sum of times of the recent moves */
+	private double perSecond(long[] counts) {
+		long count = 0;
+		long time = 0;
+		for(int i = 0; i < Math.min(moves, WINDOW); i++) {
+			count += counts[i];
+			time += nanos[i];
+		}
+		return time == 0 ? 0 : 1e9 * count / time;
+	}
+}
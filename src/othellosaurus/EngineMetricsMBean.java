@@ -0,0 +1,22 @@
+package othellosaurus;
+
+/**
+ * Management interface of EngineMetrics, as seen in JMX clients such as
+ * JConsole
+ */
+public interface EngineMetricsMBean {
+	/** Returns the nodes searched per second over the recent moves */
+	double getNodesPerSecond();
+
+	/** Returns the static evaluations per second over the recent moves */
+	double getEvalsPerSecond();
+
+	/** Returns the average depth reached over the recent searched moves */
+	double getAverageDepth();
+
+	/** Returns the fraction of transposition table entries in use */
+	double getTableFillRatio();
+
+	/** Returns the number of moves found since the agent was created */
+	long getMoves();
+}
@@ -0,0 +1,63 @@
+package othellosaurus;
+import java.util.Arrays;
+
+/**
+ * Fixed-size, direct-mapped cache of static evaluations keyed by a
+ * position's Zobrist hash. The same positions are evaluated many times: for
+ * move ordering near the root, again as leaves, and again in each iteration
+ * of iterative deepening, and an evaluation never changes, so the cache is
+ * kept for as long as its evaluator.
+ *
+ * Each entry is one long holding the top 32 bits of the key and the value,
+ * so an entry is read and written whole and the cache can be shared by
+ * threads without locking. The bits of the key used to pick the entry and
+ * the 32 bits stored make a false hit practically impossible.
+ *
+ * Layout of an entry: bits 0-31 value, bits 32-63 top of the key
+ */
+public class EvalCache {
+	public static final int DEFAULT_KB = 512; // default memory budget
+	private static final long KEY_MASK = 0xffffffff00000000L;
+
+	private final long[] table;
+	private final int mask;
+
+	// counts of lookups, kept without synchronization so only approximate
+	// when several threads share the cache
+	public long probes;
+	public long hits;
+
+	/** Creates a new cache using at most the given number of kilobytes */
+	public EvalCache(int kilobytes) {
+		int entries = (int)Math.min(Long.highestOneBit(Math.max(1, ((long)kilobytes << 10) / 8)), 1 << 28);
+		table = new long[entries];
+		mask = entries - 1;
+	}
+
+	/** Returns e's evaluation of b, from the cache if it is there */
+	public int eval(Evaluator e, Board b) {
+		long key = b.zobrist;
+		int i = (int)key & mask;
+		long entry = table[i];
+		probes++;
+		if((entry & KEY_MASK) == (key & KEY_MASK) && entry != 0) {
+			hits++;
+			return (int)entry;
+		}
+		int value = e.eval(b);
+		table[i] = (key & KEY_MASK) | (value & 0xffffffffL);
+		return value;
+	}
+
+	/** Returns the fraction of lookups found in the cache since the last clear */
+	public double hitRate() {
+		return probes == 0 ? 0 : (double)hits / probes;
+	}
+
+	/** Removes all entries and resets the counts */
+	public void clear() {
+		Arrays.fill(table, 0);
+		probes = 0;
+		hits = 0;
+	}
+}
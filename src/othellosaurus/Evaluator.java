@@ -1,197 +1,548 @@
-package othellosaurus;
-
-/**
- * Othello static evaluator
- */
-public class Evaluator {
-	public static final int MOBILITY_FACTOR = 10000;
-
-	// weights for heuristics given number of pieces on the board
-	public int[][] weightsForNumPieces;
-
-	/**
-	 * Constructs a new evaluator
-	 * weightsForTimings is an array of weights. Timings is an array that
-	 * determines at which number of pieces on the board to use the matching
-	 * set of weights.
-	 * When the current number of pieces is not set in timings, weights are
-	 * linearly interpolated.
-	 */
-	public Evaluator(int[][] weightsForTimings, int[] timings) {
-		weightsForNumPieces = new int[65][weightsForTimings[0].length];
-
-		for(int m = 0; m <= 64; m++) {
-			// determine which set of weights to use
-			int w = 0;
-			for(int i = 0; i < timings.length; i++) {
-				if(m <= timings[i]) {
-					w = i;
-					break;
-				}
-			}
-
-			// first set of weights: just return them
-			if(w == 0) {
-				weightsForNumPieces[m] = weightsForTimings[0];
-				continue;
-			}
-
-			// linearly interpolate between the set of weights given for the
-			// current number of moves and the previous set of weights
-			double factor = ((double)m - timings[w - 1]) / (timings[w] - timings[w - 1]);
-			for(int i = 0; i < weightsForTimings[w].length; i++) {
-				weightsForNumPieces[m][i] =
-					(int)Math.rint(factor * weightsForTimings[w][i]
-			                    + (1 - factor) * weightsForTimings[w - 1][i]);
-			}
-		}
-	}
-
-	/**
-	 * Returns a static evaluation for b
-	 */
-	public int eval(Board b) {
-		int score = 0;
-		int[] weights = weightsForNumPieces[b.numPieces];
-
-		if(weights[0] != 0) {
-			score += weights[0] * mobility(b);
-		}
-		if(weights[1] != 0) {
-			score += weights[1] * frontier(b);
-		}
-		if(weights[2] != 0) {
-			score += weights[2] * pieces(b);
-		}
-		if(weights[3] != 0) {
-			score += weights[3] * placement(b);
-		}
-		if(weights[4] != 0) {
-			score += weights[4] * stability(b);
-		}
-		if(weights[5] != 0) {
-			score += weights[5] * cornerGrab(b);
-		}
-
-		return score;
-	}
-
-	/**
-	 * Returns the number of legal moves available to the player about to move
-	 * minus the number of legal moves available to the other player
-	 */
-	public static int mobility(Board b) {
-		long opponentMoves = b.getMoves(b.opponent);
-		return Utils.mobilityScore[Utils.bitCount(b.legalMoves)][Utils.bitCount(opponentMoves)];
-	}
-
-	/**
-	 * Returns the number of spaces adjacent to opponent pieces minus the
-	 * the number of spaces adjacent to the current player's pieces.
-	 */
-	public static final int frontier(Board b) {
-		long moverPieces = b.pieces[b.mover];
-		long opponentPieces = b.pieces[b.opponent];
-		long spaces = ~(moverPieces | opponentPieces);
-
-		long pfront = 0;
-		long ofront = 0;
-		// check for empty spaces in each direction
-		for(int direction = 0; direction < 4; direction++) {
-			int shift = Utils.shift[direction];
-			long mask = Utils.frontierContributers[direction];
-			pfront |= (spaces & ((moverPieces & mask)
-					>>> shift));
-			pfront |= (spaces & ((moverPieces & mask)
-					<< shift));
-			ofront |= (spaces & ((opponentPieces & mask)
-					>>> shift));
-			ofront |= (spaces & ((opponentPieces & mask)
-					<< shift));
-		}
-
-		return Utils.bitCount(ofront) - Utils.bitCount(pfront);
-
-	}
-
-	/**
-	 * Returns the number of pieces owned by the player about to move minus
-	 * the number of pieces owned by the other player
-	 */
-	public static int pieces(Board b) {
-		return Utils.bitCount(b.pieces[b.mover])
-			 - Utils.bitCount(b.pieces[b.opponent]);
-	}
-
-	/**
-	 * Returns the number of stable disks owned by the player about to move
-	 * minus the number of stable disks owned by the other player
-	 */
-	public static int stability(Board b) {
-		return stableDisks(b, b.mover) - stableDisks(b, b.mover ^ 1);
-	}
-
-	/**
-	 * Returns the number of stable pieces owned by the player about to move minus
-	 * the number of stable pieces owned by the other player
-	 */
-	public static int stableDisks(Board b, int p) {
-		long pPieces = b.pieces[p];
-		long stable = Utils.corners & pPieces;
-		long newStable = 0;
-
-		while(stable != newStable) {
-			stable = newStable;
-			newStable = pPieces;
-			for(int dir = 0; dir < 4; dir++) {
-				newStable &= (Utils.edges[dir][0] | Utils.edges[dir][1]
-			        | (stable << Utils.shift[dir]) | (stable >>> Utils.shift[dir]));
-			}
-		}
-
-		return Utils.bitCount(stable);
-	}
-
-	// value of controlling the given square
-	public static final int[][] SQUARE_SCORE =
-	{{ 100, -10,   8,   6},
-	 { -10, -25,  -4,  -4},
-	 {   8,  -4,   6,   4},
-	 {   6,  -4,   4,   0}};
-	/**
-	 * Returns the piece placement score of the current player minus the piece
-	 * placement score of the opponent. See SQUARE_SCORE for values.
-	 */
-	public static int placement(Board b) {
-		long playerPieces = b.pieces[b.mover];
-		long opponentPieces = b.pieces[b.opponent];
-		int score = 0;
-
-		// Use lookup table in Utils to compute placement value one row at at time
-		for(int y = 0; y < 8; y++) {
-			score += Utils.rowScore[(int)(playerPieces & 255)]
-			                       [(int)(opponentPieces & 255)][y];
-
-			playerPieces >>= 8;
-			opponentPieces >>= 8;
-		}
-
-		return score;
-	}
-
-	/**
-	 * Returns 1 if the current player can take a corner with its next move
-	 * and 0 if otherwise.
-	 */
-	public static int cornerGrab(Board b) {
-		return (b.legalMoves & Utils.corners) == 0 ? 0 : 1;
-	}
-
-	/**
-	 * Returns 1 if the current player has parity (that is, they will move last)
-	 * and -1 if otherwise (currently unused feature)
-	 */
-	public static int parity(Board b) {
-		return b.opponent == (b.numPieces + b.mover) % 2 ? 1 : -1;
-	}
-}
+package othellosaurus;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Othello static evaluator
+ */
+public class Evaluator {
+	public static final int MOBILITY_FACTOR = 10000;
+
+	// Weights for end game found through linear regression on the final score
+	// Other weights found through hill climbing algorithm
+	public static final int[][] DEFAULT_WEIGHTS = new int[][] {
+			{8, 85, -40, 10, 210, 520},
+		    {8, 85, -40, 10, 210, 520},
+		    {33, -50, -15, 4, 416, 2153},
+		    {46, -50, -1, 3, 612, 4141},
+		    {51, -50, 62, 3, 595, 3184},
+		    {33, -5,  66, 2, 384, 2777},
+		    {44, 50, 163, 0, 443, 2568},
+		    {13, 50, 66, 0, 121, 986},
+		    {4, 50, 31, 0, 27, 192},
+		    {8, 500, 77, 0, 36, 299}};
+	public static final int[] DEFAULT_TIMINGS =
+		new int[] {0, 55, 56, 57, 58, 59, 60, 61, 62, 63};
+
+	public static final int NUM_FEATURES = 6;
+	private static final int ALL_FEATURES = (1 << NUM_FEATURES) - 1;
+
+	// weights for heuristics given number of pieces on the board
+	public int[][] weightsForNumPieces;
+	// bit i set when feature i has a nonzero weight, given number of pieces
+	private final int[] featuresForNumPieces = new int[65];
+
+	/**
+	 * Constructs a new evaluator with the default weights
+	 */
+	public Evaluator() {
+		this(DEFAULT_WEIGHTS, DEFAULT_TIMINGS);
+	}
+
+	/**
+	 * Constructs a new evaluator
+	 * weightsForTimings is an array of weights. Timings is an array that
+	 * determines at which number of pieces on the board to use the matching
+	 * set of weights.
+	 * When the current number of pieces is not set in timings, weights are
+	 * linearly interpolated.
+	 */
+	public Evaluator(int[][] weightsForTimings, int[] timings) {
+		weightsForNumPieces = new int[65][weightsForTimings[0].length];
+
+		for(int m = 0; m <= 64; m++) {
+			// determine which set of weights to use
+			int w = 0;
+			for(int i = 0; i < timings.length; i++) {
+				if(m <= timings[i]) {
+					w = i;
+					break;
+				}
+			}
+
+			// first set of weights: just return them
+			if(w == 0) {
+				weightsForNumPieces[m] = weightsForTimings[0];
+				continue;
+			}
+
+			// linearly interpolate between the set of weights given for the
+			// current number of moves and the previous set of weights
+			double factor = ((double)m - timings[w - 1]) / (timings[w] - timings[w - 1]);
+			for(int i = 0; i < weightsForTimings[w].length; i++) {
+				weightsForNumPieces[m][i] =
+					(int)Math.rint(factor * weightsForTimings[w][i]
+			                    + (1 - factor) * weightsForTimings[w - 1][i]);
+			}
+		}
+
+		for(int m = 0; m <= 64; m++) {
+			for(int i = 0; i < NUM_FEATURES; i++) {
+				if(weightsForNumPieces[m][i] != 0) {
+					featuresForNumPieces[m] |= 1 << i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads an evaluator from a weights file. Each line holds a timing
+	 * followed by the set of weights to use at that timing (see the
+	 * constructor); blank lines and lines starting with # are ignored. A
+	 * line without exactly NUM_FEATURES weights is an IOException.
+	 */
+	public static Evaluator read(File file) throws IOException {
+		ArrayList<int[]> weights = new ArrayList<int[]>();
+		ArrayList<Integer> timings = new ArrayList<Integer>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			for(int lineNumber = 1; (line = in.readLine()) != null; lineNumber++) {
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				if(fields.length != 1 + NUM_FEATURES) {
+					throw new IOException(String.format(
+							"%s line %d: expected a timing and %d weights, found %d columns",
+							file, lineNumber, NUM_FEATURES, fields.length));
+				}
+				timings.add(Integer.parseInt(fields[0]));
+				int[] w = new int[fields.length - 1];
+				for(int i = 0; i < w.length; i++) {
+					w[i] = Integer.parseInt(fields[i + 1]);
+				}
+				weights.add(w);
+			}
+		} finally {
+			in.close();
+		}
+		if(weights.isEmpty()) {
+			throw new IOException("No weights in " + file);
+		}
+		int[] t = new int[timings.size()];
+		for(int i = 0; i < t.length; i++) {
+			t[i] = timings.get(i);
+		}
+		return new Evaluator(weights.toArray(new int[weights.size()][]), t);
+	}
+
+	/**
+	 * Returns a static evaluation for b. All features are computed in one
+	 * pass sharing the bitboards they are built from; when every weight for
+	 * the number of pieces is nonzero (most of the game) no feature needs
+	 * checking. The result is the same as evalByFeatures.
+	 */
+	public int eval(Board b) {
+		int features = featuresForNumPieces[b.numPieces];
+		int[] weights = weightsForNumPieces[b.numPieces];
+		long p = b.pieces[b.mover];
+		long o = b.pieces[b.opponent];
+		long empty = ~(p | o);
+		if(features == ALL_FEATURES) {
+			return weights[0] * Utils.mobilityScore[Long.bitCount(b.legalMoves)]
+							[Long.bitCount(Board.moveGenerator.getMoves(o, p))]
+				 + weights[1] * frontier(p, o, empty)
+				 + weights[2] * (Long.bitCount(p) - Long.bitCount(o))
+				 + weights[3] * placement(p, o)
+				 + weights[4] * stability(p, o)
+				 + weights[5] * ((b.legalMoves & Utils.corners) == 0 ? 0 : 1);
+		}
+
+		// some weights are 0, e.g. placement at the end of the game
+		int score = 0;
+		if((features & 1) != 0) {
+			score += weights[0] * Utils.mobilityScore[Long.bitCount(b.legalMoves)]
+							[Long.bitCount(Board.moveGenerator.getMoves(o, p))];
+		}
+		if((features & 2) != 0) {
+			score += weights[1] * frontier(p, o, empty);
+		}
+		if((features & 4) != 0) {
+			score += weights[2] * (Long.bitCount(p) - Long.bitCount(o));
+		}
+		if((features & 8) != 0) {
+			score += weights[3] * placement(p, o);
+		}
+		if((features & 16) != 0) {
+			score += weights[4] * stability(p, o);
+		}
+		if((features & 32) != 0) {
+			score += weights[5] * ((b.legalMoves & Utils.corners) == 0 ? 0 : 1);
+		}
+		return score;
+	}
+
+	/**
+	 * Returns a static evaluation for b, computing each feature on its own.
+	 * Slower than eval, and kept to check it against (see Benchmark eval).
+	 */
+	public int evalByFeatures(Board b) {
+		int score = 0;
+		int[] weights = weightsForNumPieces[b.numPieces];
+
+		if(weights[0] != 0) {
+			score += weights[0] * mobility(b);
+		}
+		if(weights[1] != 0) {
+			score += weights[1] * frontier(b);
+		}
+		if(weights[2] != 0) {
+			score += weights[2] * pieces(b);
+		}
+		if(weights[3] != 0) {
+			score += weights[3] * placement(b);
+		}
+		if(weights[4] != 0) {
+			score += weights[4] * stability(b);
+		}
+		if(weights[5] != 0) {
+			score += weights[5] * cornerGrab(b);
+		}
+
+		return score;
+	}
+
+	/**
+	 * Returns an evaluation found with numPieces on the board in a form
+	 * readable by people
+	 */
+	public String scoreString(int value, int numPieces) {
+		if(numPieces >= 56) {
+			// endgame: score printed so a stable disc is worth 1 point
+			return String.format(" (%1.2fe) ", value /
+							((float)weightsForNumPieces[numPieces][4]));
+		} else {
+			// rest of the game: score printed so owning a corner is worth 1 point
+			return String.format(" (%1.2f) ", value /
+						(100.0 * weightsForNumPieces[numPieces][3]));
+		}
+	}
+
+	/**
+	 * Returns the number of legal moves available to the player about to move
+	 * minus the number of legal moves available to the other player
+	 */
+	public static int mobility(Board b) {
+		long opponentMoves = b.getMoves(b.opponent);
+		return Utils.mobilityScore[Utils.bitCount(b.legalMoves)][Utils.bitCount(opponentMoves)];
+	}
+
+	/**
+	 * Returns the number of spaces adjacent to opponent pieces minus the
+	 * the number of spaces adjacent to the current player's pieces.
+	 */
+	public static final int frontier(Board b) {
+		long moverPieces = b.pieces[b.mover];
+		long opponentPieces = b.pieces[b.opponent];
+		long spaces = ~(moverPieces | opponentPieces);
+
+		long pfront = 0;
+		long ofront = 0;
+		// check for empty spaces in each direction
+		for(int direction = 0; direction < 4; direction++) {
+			int shift = Utils.shift[direction];
+			long mask = Utils.frontierContributers[direction];
+			pfront |= (spaces & ((moverPieces & mask)
+					>>> shift));
+			pfront |= (spaces & ((moverPieces & mask)
+					<< shift));
+			ofront |= (spaces & ((opponentPieces & mask)
+					>>> shift));
+			ofront |= (spaces & ((opponentPieces & mask)
+					<< shift));
+		}
+
+		return Utils.bitCount(ofront) - Utils.bitCount(pfront);
+
+	}
+
+	// pieces that count towards frontier in each direction, the same as
+	// Utils.frontierContributers
+	private static final long FRONTIER_H = 0x7e7e7e7e7e7e7e7eL;
+	private static final long FRONTIER_V = 0x00ffffffffffff00L;
+	private static final long FRONTIER_9 = 0x007e7e7e7e7e7e00L;
+	private static final long FRONTIER_7 = 0x007e7e7e7e7e7e00L;
+
+	/**
+	 * Returns frontier (see above) with the player to move owning p, the
+	 * other player owning o and empty the empty squares
+	 */
+	private static int frontier(long p, long o, long empty) {
+		return Long.bitCount(empty & adjacent(o)) - Long.bitCount(empty & adjacent(p));
+	}
+
+	/** Returns the squares next to pieces in b, in the directions frontier counts */
+	private static long adjacent(long b) {
+		long h = b & FRONTIER_H;
+		long v = b & FRONTIER_V;
+		long d9 = b & FRONTIER_9;
+		long d7 = b & FRONTIER_7;
+		return (h >>> 1) | (h << 1) | (v >>> 8) | (v << 8)
+			 | (d9 >>> 9) | (d9 << 9) | (d7 >>> 7) | (d7 << 7);
+	}
+
+	/**
+	 * Returns the number of pieces owned by the player about to move minus
+	 * the number of pieces owned by the other player
+	 */
+	public static int pieces(Board b) {
+		return Utils.bitCount(b.pieces[b.mover])
+			 - Utils.bitCount(b.pieces[b.opponent]);
+	}
+
+	/**
+	 * Returns the number of stable disks owned by the player about to move
+	 * minus the number of stable disks owned by the other player
+	 */
+	public static int stability(Board b) {
+		return stability(b.pieces[b.mover], b.pieces[b.opponent]);
+	}
+
+	/** Returns stability (see above) with the player to move owning p */
+	private static int stability(long p, long o) {
+		long stable = getStable(p, o);
+		return Long.bitCount(stable & p) - Long.bitCount(stable & o);
+	}
+
+	/**
+	 * Returns the number of stable pieces owned by player p
+	 */
+	public static int stableDisks(Board b, int p) {
+		return Utils.bitCount(getStable(b.pieces[p], b.pieces[p ^ 1]) & b.pieces[p]);
+	}
+
+	// squares off the edges of the board, and squares that can receive a
+	// piece shifted to a greater and a smaller x
+	private static final long CENTRAL = 0x007e7e7e7e7e7e00L;
+	private static final long NOT_FILE_A = 0xfefefefefefefefeL;
+	private static final long NOT_FILE_H = 0x7f7f7f7f7f7f7f7fL;
+	private static final long FILE_A = 0x0101010101010101L;
+
+	/**
+	 * Returns the pieces of both players (owning p and o) that are stable
+	 * by their edge or by full lines, without branches or loops: getStable
+	 * without contact stability. It misses pieces stable only by touching
+	 * other stable pieces, including some stableDisksFromCorners finds, so
+	 * it is too weak for the stability feature; kept for comparison (see
+	 * Benchmark stability).
+	 */
+	public static long getLineStable(long p, long o) {
+		long filled = p | o;
+		long full = fullRows(filled) & fullColumns(filled)
+				  & fullLines(filled, 9, NOT_FILE_A, NOT_FILE_H)
+				  & fullLines(filled, 7, NOT_FILE_H, NOT_FILE_A);
+		return edgeStable(p, o) | (filled & full & CENTRAL);
+	}
+
+	/**
+	 * Returns the pieces of both players (owning p and o) that can never be
+	 * flipped whatever is played. Edge pieces are looked up in
+	 * Utils.edgeStability, since they can only be flipped along their edge.
+	 * Any other piece is stable when, in each of the four directions, its
+	 * line is full or it touches a stable piece of its own color, which is
+	 * grown from the edges until nothing changes. Finds every piece
+	 * getLineStable and stableDisksFromCorners find.
+	 */
+	public static long getStable(long p, long o) {
+		long filled = p | o;
+		long fullH = fullRows(filled);
+		long fullV = fullColumns(filled);
+		long edges = edgeStable(p, o);
+
+		// without a stable edge piece or a piece on full lines nothing can be
+		// stable, as in most positions before the endgame
+		if(edges == 0 && (fullH & fullV & CENTRAL) == 0) {
+			return 0;
+		}
+		long full9 = fullLines(filled, 9, NOT_FILE_A, NOT_FILE_H);
+		long full7 = fullLines(filled, 7, NOT_FILE_H, NOT_FILE_A);
+		long full = fullH & fullV & full9 & full7;
+		long centralP = p & CENTRAL;
+		long centralO = o & CENTRAL;
+		long stableP = p & (edges | (centralP & full));
+		long stableO = o & (edges | (centralO & full));
+
+		long lastP, lastO;
+		do {
+			lastP = stableP;
+			lastO = stableO;
+			stableP |= centralP & (fullH | (stableP >>> 1) | (stableP << 1))
+								& (fullV | (stableP >>> 8) | (stableP << 8))
+								& (full9 | (stableP >>> 9) | (stableP << 9))
+								& (full7 | (stableP >>> 7) | (stableP << 7));
+			stableO |= centralO & (fullH | (stableO >>> 1) | (stableO << 1))
+								& (fullV | (stableO >>> 8) | (stableO << 8))
+								& (full9 | (stableO >>> 9) | (stableO << 9))
+								& (full7 | (stableO >>> 7) | (stableO << 7));
+		} while(stableP != lastP || stableO != lastO);
+		return stableP | stableO;
+	}
+
+	/** Returns the edge pieces of p and o that can never be flipped */
+	private static long edgeStable(long p, long o) {
+		return (Utils.edgeStability[edgeIndex((int)p & 255, (int)o & 255)] & 255L)
+			 | (Utils.edgeStability[edgeIndex((int)(p >>> 56), (int)(o >>> 56))] & 255L) << 56
+			 | Utils.firstColumn[Utils.edgeStability[edgeIndex(column(p, 0), column(o, 0))] & 255]
+			 | Utils.firstColumn[Utils.edgeStability[edgeIndex(column(p, 7), column(o, 7))] & 255] << 7;
+	}
+
+	/** Returns the squares of the rows holding no empty square */
+	private static long fullRows(long filled) {
+		long h = filled & (filled >>> 1);
+		h &= h >>> 2;
+		h &= h >>> 4;
+		return (h & FILE_A) * 255;
+	}
+
+	/** Returns the squares of the columns holding no empty square */
+	private static long fullColumns(long filled) {
+		long v = filled & (filled >>> 8);
+		v &= v >>> 16;
+		v &= v >>> 32;
+		return (v & 255) * FILE_A;
+	}
+
+	/** Returns the index in Utils.edgeStability of a line with pieces p and o */
+	private static int edgeIndex(int p, int o) {
+		return Utils.ternary[p] + 2 * Utils.ternary[o];
+	}
+
+	/** Returns the bits of column x, from the bottom */
+	private static int column(long b, int x) {
+		// each bit lands in the top byte and nothing carries into it
+		return (int)((((b >>> x) & FILE_A) * 0x0102040810204080L) >>> 56);
+	}
+
+	/**
+	 * Returns the squares whose diagonal in the direction of the given shift
+	 * holds no empty square, by spreading the empty squares along their
+	 * diagonals both ways. up and down are the squares that can receive a
+	 * piece shifted by a greater and a smaller index without wrapping around.
+	 */
+	private static long fullLines(long filled, int shift, long up, long down) {
+		long reach = ~filled;
+		long upReach = reach, downReach = reach;
+		upReach |= up & (upReach << shift);
+		downReach |= down & (downReach >>> shift);
+		up &= up << shift;
+		down &= down >>> shift;
+		upReach |= up & (upReach << 2 * shift);
+		downReach |= down & (downReach >>> 2 * shift);
+		up &= up << 2 * shift;
+		down &= down >>> 2 * shift;
+		upReach |= up & (upReach << 4 * shift);
+		downReach |= down & (downReach >>> 4 * shift);
+		return ~(upReach | downReach);
+	}
+
+	/**
+	 * Returns the number of stable pieces owned by player p found by the
+	 * earlier, simpler method: pieces grown out from the corners, each
+	 * touching stable pieces or the edge in every direction. It misses
+	 * pieces made stable by full lines and many edge pieces; kept for
+	 * comparison (see Benchmark stability).
+	 */
+	public static int stableDisksFromCorners(Board b, int p) {
+		long pPieces = b.pieces[p];
+		long stable = Utils.corners & pPieces;
+		long newStable = 0;
+
+		while(stable != newStable) {
+			stable = newStable;
+			newStable = pPieces;
+			for(int dir = 0; dir < 4; dir++) {
+				newStable &= (Utils.edges[dir][0] | Utils.edges[dir][1]
+			        | (stable << Utils.shift[dir]) | (stable >>> Utils.shift[dir]));
+			}
+		}
+
+		return Utils.bitCount(stable);
+	}
+
+	// value of controlling the given square
+	public static final int[][] SQUARE_SCORE =
+	{{ 100, -10,   8,   6},
+	 { -10, -25,  -4,  -4},
+	 {   8,  -4,   6,   4},
+	 {   6,  -4,   4,   0}};
+	// the distinct nonzero values of SQUARE_SCORE and the squares with each
+	private static final int[] PLACEMENT_VALUES;
+	private static final long[] PLACEMENT_SQUARES;
+	static {
+		TreeMap<Integer, Long> squares = new TreeMap<Integer, Long>();
+		for(int x = 0; x < 8; x++) {
+			for(int y = 0; y < 8; y++) {
+				int value = SQUARE_SCORE[Math.min(x, 7 - x)][Math.min(y, 7 - y)];
+				if(value != 0) {
+					Long s = squares.get(value);
+					squares.put(value, (s == null ? 0 : s) | 1L << (x + 8 * y));
+				}
+			}
+		}
+		PLACEMENT_VALUES = new int[squares.size()];
+		PLACEMENT_SQUARES = new long[squares.size()];
+		int i = 0;
+		for(Map.Entry<Integer, Long> e : squares.entrySet()) {
+			PLACEMENT_VALUES[i] = e.getKey();
+			PLACEMENT_SQUARES[i++] = e.getValue();
+		}
+	}
+
+	/**
+	 * Returns the piece placement score of the current player minus the piece
+	 * placement score of the opponent. See SQUARE_SCORE for values.
+	 */
+	public static int placement(Board b) {
+		long playerPieces = b.pieces[b.mover];
+		long opponentPieces = b.pieces[b.opponent];
+		int score = 0;
+
+		// Use lookup table in Utils to compute placement value one row at at time
+		for(int y = 0; y < 8; y++) {
+			score += Utils.rowScore[(int)(playerPieces & 255)]
+			                       [(int)(opponentPieces & 255)][y];
+
+			playerPieces >>= 8;
+			opponentPieces >>= 8;
+		}
+
+		return score;
+	}
+
+	/**
+	 * Returns placement (see above) with the player to move owning p,
+	 * counting the pieces on the squares of each value instead of looking
+	 * up each row
+	 */
+	private static int placement(long p, long o) {
+		int score = 0;
+		for(int i = 0; i < PLACEMENT_VALUES.length; i++) {
+			score += PLACEMENT_VALUES[i] * (Long.bitCount(p & PLACEMENT_SQUARES[i])
+										  - Long.bitCount(o & PLACEMENT_SQUARES[i]));
+		}
+		return score;
+	}
+
+	/**
+	 * Returns 1 if the current player can take a corner with its next move
+	 * and 0 if otherwise.
+	 */
+	public static int cornerGrab(Board b) {
+		return (b.legalMoves & Utils.corners) == 0 ? 0 : 1;
+	}
+
+	/**
+	 * Returns 1 if the current player has parity (that is, they will move last)
+	 * and -1 if otherwise (currently unused feature)
+	 */
+	public static int parity(Board b) {
+		return b.opponent == (b.numPieces + b.mover) % 2 ? 1 : -1;
+	}
+}
@@ -0,0 +1,312 @@
+package othellosaurus;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fits the weights of the default Evaluator to labelled positions (see
+ * TrainingData) by least squares, and writes them in the format read by
+ * Evaluator.read.
+ *   java othellosaurus.EvaluatorTrainer [options] <training data> <weights file>
+ * Options:
+ *   -timings <t0,t1,...>  numbers of pieces to fit a set of weights for
+ *                         (default 4,10,...,64; see the Evaluator constructor)
+ *   -scale <units>        evaluation of a one disc lead (default 1000)
+ *   -threads <threads>    threads computing features (default: all cores)
+ *
+ * The evaluator interpolates its weights between timings, so the evaluation
+ * is linear in all the weights at once and they are fit together with the
+ * interpolation included. Positions are read in blocks and handed to the
+ * threads through a bounded queue, and each thread only adds to its own
+ * normal equations, so memory stays the same however large the data set.
+ * One position in TrainingData.VALIDATION_EVERY is kept out of the fit
+ * and the error on those is printed.
+ */
+public class EvaluatorTrainer {
+	public static final int BLOCK_SIZE = 4096; // positions read at a time
+	public static final int DEFAULT_SCALE = 1000;
+
+	private final int[] timings;
+	private final int numWeights;
+
+	// the first of the two timings between which each number of pieces
+	// falls and the fraction of the way to the second
+	private final int[] lower = new int[65];
+	private final double[] fraction = new double[65];
+
+	/** Creates a trainer fitting a set of weights for each timing */
+	public EvaluatorTrainer(int[] timings) {
+		this.timings = timings;
+		this.numWeights = timings.length * Evaluator.NUM_FEATURES;
+		for(int m = 0; m <= 64; m++) {
+			// same choice of weights as the Evaluator constructor
+			int w = 0;
+			for(int i = 0; i < timings.length; i++) {
+				if(m <= timings[i]) {
+					w = i;
+					break;
+				}
+			}
+			if(w == 0) {
+				lower[m] = w;
+				fraction[m] = 0;
+			} else {
+				lower[m] = w - 1;
+				fraction[m] = ((double)m - timings[w - 1]) / (timings[w] - timings[w - 1]);
+			}
+		}
+	}
+
+	/** Returns the features of b, in the order of the weights they multiply */
+	public static double[] features(Board b) {
+		return new double[] {Evaluator.mobility(b), Evaluator.frontier(b), Evaluator.pieces(b),
+							 Evaluator.placement(b), Evaluator.stability(b), Evaluator.cornerGrab(b)};
+	}
+
+	/**
+	 * Sums of a least squares problem: the normal equations X'X w = X'y over
+	 * the training positions and the sum of squared labels, plus the
+	 * validation positions kept to measure the fitted weights on
+	 */
+	private class Sums {
+		public final double[][] xx = new double[numWeights][numWeights];
+		public final double[] xy = new double[numWeights];
+		public double yy;
+		public long n;
+
+		// x of a position: each feature split between the weights of two timings
+		private final double[] x = new double[numWeights];
+		private final int[] nonzero = new int[2 * Evaluator.NUM_FEATURES];
+
+		/** Adds the position with the mover owning p and the opponent owning o */
+		public void add(long p, long o, int score) {
+			int numPieces = Utils.bitCount(p | o);
+			double[] f = features(new Board(p, o, Board.BLACK));
+			double frac = fraction[numPieces];
+			int base = lower[numPieces] * Evaluator.NUM_FEATURES;
+			int k = 0;
+			for(int i = 0; i < Evaluator.NUM_FEATURES; i++) {
+				x[base + i] = (1 - frac) * f[i];
+				nonzero[k++] = base + i;
+				if(frac != 0) {
+					x[base + Evaluator.NUM_FEATURES + i] = frac * f[i];
+					nonzero[k++] = base + Evaluator.NUM_FEATURES + i;
+				}
+			}
+			for(int a = 0; a < k; a++) {
+				int i = nonzero[a];
+				xy[i] += x[i] * score;
+				for(int c = 0; c < k; c++) {
+					xx[i][nonzero[c]] += x[i] * x[nonzero[c]];
+				}
+			}
+			for(int a = 0; a < k; a++) {
+				x[nonzero[a]] = 0;
+			}
+			yy += (double)score * score;
+			n++;
+		}
+
+		/** Adds other's sums to these */
+		public void add(Sums other) {
+			for(int i = 0; i < numWeights; i++) {
+				for(int j = 0; j < numWeights; j++) {
+					xx[i][j] += other.xx[i][j];
+				}
+				xy[i] += other.xy[i];
+			}
+			yy += other.yy;
+			n += other.n;
+		}
+
+		/** Returns the rms error of the weights w on the positions added */
+		public double rmsError(double[] w) {
+			// sum of (x.w - y)^2 = w'X'Xw - 2 w'X'y + y'y
+			double error = yy;
+			for(int i = 0; i < numWeights; i++) {
+				error -= 2 * w[i] * xy[i];
+				for(int j = 0; j < numWeights; j++) {
+					error += w[i] * xx[i][j] * w[j];
+				}
+			}
+			return Math.sqrt(Math.max(0, error) / Math.max(1, n));
+		}
+	}
+
+	/** A block of positions read from the data set, numbered from first */
+	private static class Block {
+		public final long[] p = new long[BLOCK_SIZE];
+		public final long[] o = new long[BLOCK_SIZE];
+		public final int[] score = new int[BLOCK_SIZE];
+		public int size;
+		public long first;
+	}
+
+	/**
+	 * Reads the data set once with the given number of threads and returns
+	 * the sums for the training positions and the validation positions
+	 */
+	private Sums[] read(File data, int threads) throws IOException, InterruptedException {
+		final BlockingQueue<Block> queue = new ArrayBlockingQueue<Block>(2 * threads);
+		final Block end = new Block();
+		final List<Sums[]> results = new ArrayList<Sums[]>();
+		List<Thread> workers = new ArrayList<Thread>();
+		for(int t = 0; t < threads; t++) {
+			final Sums[] sums = {new Sums(), new Sums()};
+			results.add(sums);
+			Thread worker = new Thread("trainer-" + t) {
+				public void run() {
+					try {
+						Block block;
+						while((block = queue.take()) != end) {
+							for(int i = 0; i < block.size; i++) {
+								int set = ((block.first + i) % TrainingData.VALIDATION_EVERY == 0 ? 1 : 0);
+								sums[set].add(block.p[i], block.o[i], block.score[i]);
+							}
+						}
+					} catch(InterruptedException ex) {
+						// stopped early
+					}
+				}
+			};
+			worker.start();
+			workers.add(worker);
+		}
+
+		TrainingData in = new TrainingData(data);
+		try {
+			long count = 0;
+			boolean more = true;
+			while(more) {
+				Block block = new Block();
+				block.first = count;
+				while(block.size < BLOCK_SIZE && (more = in.next())) {
+					block.p[block.size] = in.p;
+					block.o[block.size] = in.o;
+					block.score[block.size] = in.score;
+					block.size++;
+				}
+				count += block.size;
+				queue.put(block);
+			}
+		} finally {
+			in.close();
+			for(int t = 0; t < threads; t++) {
+				queue.put(end);
+			}
+		}
+		for(Thread worker : workers) {
+			worker.join();
+		}
+
+		Sums[] total = {new Sums(), new Sums()};
+		for(Sums[] sums : results) {
+			total[0].add(sums[0]);
+			total[1].add(sums[1]);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the weights solving the normal equations, with a small ridge
+	 * so weights of features that never vary (e.g. placement when the
+	 * board is full) come out 0 instead of making the system singular
+	 */
+	private double[] solve(Sums sums) {
+		int n = numWeights;
+		double[][] a = new double[n][n + 1];
+		for(int i = 0; i < n; i++) {
+			System.arraycopy(sums.xx[i], 0, a[i], 0, n);
+			a[i][i] += 1e-6 * sums.xx[i][i] + 1e-9;
+			a[i][n] = sums.xy[i];
+		}
+		// Gaussian elimination with partial pivoting
+		for(int c = 0; c < n; c++) {
+			int pivot = c;
+			for(int r = c + 1; r < n; r++) {
+				if(Math.abs(a[r][c]) > Math.abs(a[pivot][c])) {
+					pivot = r;
+				}
+			}
+			double[] tmp = a[c];
+			a[c] = a[pivot];
+			a[pivot] = tmp;
+			for(int r = c + 1; r < n; r++) {
+				double factor = a[r][c] / a[c][c];
+				for(int k = c; k <= n; k++) {
+					a[r][k] -= factor * a[c][k];
+				}
+			}
+		}
+		double[] w = new double[n];
+		for(int r = n - 1; r >= 0; r--) {
+			double sum = a[r][n];
+			for(int k = r + 1; k < n; k++) {
+				sum -= a[r][k] * w[k];
+			}
+			w[r] = sum / a[r][r];
+		}
+		return w;
+	}
+
+	/** Writes the weights (in discs) times scale in the format of Evaluator.read */
+	public void write(double[] w, int scale, File file) throws IOException {
+		FileWriter out = new FileWriter(file);
+		try {
+			out.write("# timing mobility frontier pieces placement stability cornerGrab\n");
+			for(int t = 0; t < timings.length; t++) {
+				out.write(Integer.toString(timings[t]));
+				for(int i = 0; i < Evaluator.NUM_FEATURES; i++) {
+					out.write(" " + Math.round(scale * w[t * Evaluator.NUM_FEATURES + i]));
+				}
+				out.write("\n");
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Fits weights to the data set given by the arguments */
+	public static void main(String[] args) throws Exception {
+		int[] timings = null;
+		int scale = DEFAULT_SCALE;
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> files = new ArrayList<String>();
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-timings")) {
+				String[] fields = args[++i].split(",");
+				timings = new int[fields.length];
+				for(int j = 0; j < fields.length; j++) {
+					timings[j] = Integer.parseInt(fields[j]);
+				}
+			} else if(args[i].equals("-scale")) {
+				scale = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else {
+				files.add(args[i]);
+			}
+		}
+		if(timings == null) {
+			timings = new int[11];
+			for(int i = 0; i < timings.length; i++) {
+				timings[i] = 4 + 6 * i;
+			}
+		}
+
+		EvaluatorTrainer trainer = new EvaluatorTrainer(timings);
+		long startTime = System.nanoTime();
+		Sums[] sums = trainer.read(new File(files.get(0)), threads);
+		double[] w = trainer.solve(sums[0]);
+		System.out.println(String.format("%d positions in %.1f seconds", sums[0].n + sums[1].n,
+				(System.nanoTime() - startTime) / 1e9));
+		System.out.println(String.format("rms error (discs)  training: %.3f  validation: %.3f",
+				sums[0].rmsError(w), sums[1].rmsError(w)));
+		trainer.write(w, scale, new File(files.get(1)));
+		System.out.println("Wrote weights to " + files.get(1));
+	}
+}
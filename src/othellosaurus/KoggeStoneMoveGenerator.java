@@ -0,0 +1,70 @@
+package othellosaurus;
+
+/**
+ * Branch-free move generator. Runs of opponent pieces are filled out from
+ * the mover's pieces (or the move) six shifts at a time in each direction
+ * (dumb7fill, the simple form of a Kogge-Stone fill), so the work done does
+ * not depend on the position.
+ */
+public class KoggeStoneMoveGenerator implements MoveGenerator {
+	public long getMoves(long p, long o) {
+		long empty = ~(p | o);
+		long m = 0;
+		for(int direction = 0; direction < 4; direction++) {
+			int shift = Utils.shift[direction];
+			long border = Utils.shiftable[direction][0];
+
+			// shifting down
+			long x = ((p & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			m |= ((x & border) >>> shift) & empty;
+
+			// shifting up
+			border = Utils.shiftable[direction][1];
+			x = ((p & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			m |= ((x & border) << shift) & empty;
+		}
+		return m;
+	}
+
+	public long getFlips(long p, long o, int move) {
+		long m = (1L << move);
+		long flips = 0;
+		for(int direction = 0; direction < 4; direction++) {
+			int shift = Utils.shift[direction];
+			long border = Utils.shiftable[direction][0];
+
+			// shifting down: keep the run of opponent pieces only if one of
+			// the mover's pieces is at the end of it
+			long x = ((m & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			x |= ((x & border) >>> shift) & o;
+			long bracket = ((x & border) >>> shift) & p;
+			flips |= x & ((bracket | -bracket) >> 63);
+
+			// shifting up
+			border = Utils.shiftable[direction][1];
+			x = ((m & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			x |= ((x & border) << shift) & o;
+			bracket = ((x & border) << shift) & p;
+			flips |= x & ((bracket | -bracket) >> 63);
+		}
+		return flips;
+	}
+}
@@ -0,0 +1,104 @@
+package othellosaurus;
+
+/**
+ * Move generator that looks up flipped pieces in precomputed tables. The
+ * row, column and both diagonals through the move are each gathered into an
+ * 8-bit index, looked up in a table of flips along a single line and
+ * scattered back onto the board. Legal moves are generated with the
+ * Kogge-Stone fill.
+ */
+public class LineTableMoveGenerator extends KoggeStoneMoveGenerator {
+	private static final long FILE_A = 0x0101010101010101L;
+	// multiplying by this gathers the bits of a column into the top byte
+	private static final long COLUMN_MAGIC = 0x0102040810204080L;
+
+	// flips along a line given the position of the move, the mover's pieces
+	// and the opponent's pieces in the line, indexed by
+	// (position << 16) | (mover << 8) | opponent
+	private static final byte[] lineFlips = new byte[8 << 16];
+	// spreads a line's bits indexed by row onto column 0
+	private static final long[] columnSpread = new long[256];
+	// masks of the diagonal and anti-diagonal through each square
+	private static final long[] diagonal = new long[64];
+	private static final long[] antiDiagonal = new long[64];
+
+	static {
+		for(int position = 0; position < 8; position++) {
+			for(int p = 0; p < 256; p++) {
+				for(int o = 0; o < 256; o++) {
+					if((p & o) != 0 || ((p | o) & (1 << position)) != 0) {
+						continue;
+					}
+					int flips = 0;
+					// walk towards each end of the line
+					for(int step = -1; step <= 1; step += 2) {
+						int run = 0;
+						int i = position + step;
+						while(i >= 0 && i < 8 && (o & (1 << i)) != 0) {
+							run |= (1 << i);
+							i += step;
+						}
+						if(i >= 0 && i < 8 && (p & (1 << i)) != 0) {
+							flips |= run;
+						}
+					}
+					lineFlips[(position << 16) | (p << 8) | o] = (byte)flips;
+				}
+			}
+		}
+
+		for(int line = 0; line < 256; line++) {
+			for(int y = 0; y < 8; y++) {
+				if((line & (1 << y)) != 0) {
+					columnSpread[line] |= (1L << Utils.getIndex(0, y));
+				}
+			}
+		}
+
+		for(int square = 0; square < 64; square++) {
+			int x = square % 8;
+			int y = square / 8;
+			for(int i = 0; i < 8; i++) {
+				int dy = i - x;
+				if(y + dy >= 0 && y + dy < 8) {
+					diagonal[square] |= (1L << Utils.getIndex(i, y + dy));
+				}
+				if(y - dy >= 0 && y - dy < 8) {
+					antiDiagonal[square] |= (1L << Utils.getIndex(i, y - dy));
+				}
+			}
+		}
+	}
+
+	public long getFlips(long p, long o, int move) {
+		int x = move & 7;
+		int y = move >>> 3;
+
+		// row: already a byte of the board
+		int row = y << 3;
+		long flips = (long)(lineFlips[(x << 16) | ((int)(p >>> row) & 255) << 8
+		                              | ((int)(o >>> row) & 255)] & 255) << row;
+
+		// column: gathered into a byte indexed by row
+		int line = lineFlips[(y << 16)
+		                     | (int)((((p >>> x) & FILE_A) * COLUMN_MAGIC) >>> 56) << 8
+		                     | (int)((((o >>> x) & FILE_A) * COLUMN_MAGIC) >>> 56)] & 255;
+		flips |= columnSpread[line] << x;
+
+		// diagonals: every square is in a different column, so the squares
+		// can be gathered into a byte indexed by column
+		long mask = diagonal[move];
+		line = lineFlips[(x << 16)
+		                 | (int)(((p & mask) * FILE_A) >>> 56) << 8
+		                 | (int)(((o & mask) * FILE_A) >>> 56)] & 255;
+		flips |= (line * FILE_A) & mask;
+
+		mask = antiDiagonal[move];
+		line = lineFlips[(x << 16)
+		                 | (int)(((p & mask) * FILE_A) >>> 56) << 8
+		                 | (int)(((o & mask) * FILE_A) >>> 56)] & 255;
+		flips |= (line * FILE_A) & mask;
+
+		return flips;
+	}
+}
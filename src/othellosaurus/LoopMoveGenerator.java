@@ -0,0 +1,69 @@
+package othellosaurus;
+
+/**
+ * Move generator that walks out from each piece or move in all 8 directions
+ * until it runs out of pieces to flip. This was the original move generator
+ * and is the reference the other generators are checked against.
+ */
+public class LoopMoveGenerator implements MoveGenerator {
+	public long getMoves(long p, long o) {
+		long m = 0;
+
+		long pNegated = ~p;
+		long oNegated = ~o;
+		// try all directions (right, up, upright, upleft) forward and backward
+		for(int direction = 0; direction < 4; direction++) {
+			for(int orientation = 0; orientation < 2; orientation++) {
+				// more bitboard magic
+				long border = Utils.shiftable[direction][orientation];
+				int shift = Utils.shift[direction];
+				long potentials = p;
+
+				// do initial shift once because must flip at least one piece to have a legal move
+				potentials &= border;
+				potentials = (orientation == 0 ? potentials >>> shift : potentials << shift);
+				potentials &= pNegated;
+				potentials &= o;
+
+				while(potentials != 0) {
+					potentials &= border;
+					potentials = (orientation == 0 ? potentials >>> shift : potentials << shift);
+					potentials &= pNegated;
+					m |= (potentials & oNegated);
+					potentials &= o;
+				}
+			}
+		}
+		return m;
+	}
+
+	public long getFlips(long p, long o, int move) {
+		long flips = 0;
+		long pNegated = ~p;
+		// try all directions (right, up, upright, upleft) forward and backward
+		for(int direction = 0; direction < 4; direction++) {
+			for(int orientation = 0; orientation < 2; orientation++) {
+				// some bitboard magic
+				// border is to stop wrapping the pieces on the edge over when we shift
+				long border = Utils.shiftable[direction][orientation];
+				int shift = Utils.shift[direction];
+				long testFlips = 0;
+				long loc = (1L << move);
+				long tmp = 0;
+				while(loc != 0) {
+					loc &= border;
+					loc = (orientation == 0 ? loc >>> shift : loc << shift);
+					tmp = loc;
+					loc &= pNegated;
+					loc &= o;
+					testFlips |= loc;
+				}
+
+				if((tmp & p) != 0) {
+					flips |= testFlips;
+				}
+			}
+		}
+		return flips;
+	}
+}
@@ -0,0 +1,19 @@
+package othellosaurus;
+
+/**
+ * Generates legal moves and flipped pieces from a pair of bitboards.
+ * Board uses the generator chosen at startup (see Board.moveGenerator).
+ */
+public interface MoveGenerator {
+	/**
+	 * Returns a bitboard of the legal moves for the player owning p when
+	 * the other player owns o
+	 */
+	public long getMoves(long p, long o);
+
+	/**
+	 * Returns a bitboard of the pieces in o that are flipped when the player
+	 * owning p plays move
+	 */
+	public long getFlips(long p, long o, int move);
+}
@@ -1,251 +1,378 @@
-package othellosaurus;
-import java.util.Arrays;
-import java.util.HashMap;
-
-/**
- * Represents a Node in a game tree.
- *  Search uses:
- *  - Negamax search with alpha-beta pruning
- *  - Transposition tables
- *  - Iterative deepening with move ordering
- *  - History heuristic
- *  - Killer move heuristic
- *
- *  Optional:
- *   - Negascout search: This makes search faster in most positions but slower
- *     when what is considered the best line changes a frequently at high ply.
- *     Unfortunately, this is exactly when we want search to be deep, so in general
- *     it seems to (very slightly) hurt performance
- */
-public class Node {
-	// types of stored evaluations in the transposition table
-	public static final byte EXACT = 0;
-	public static final byte LOWER_BOUND = 1;
-	public static final byte UPPER_BOUND = -1;
-
-	// just a big power of two
-	public static final int WIN_MULTIPLIER = 4194304;
-
-	// max ply at which to check if computations have gone over the time limit
-	public static final int FORCE_STOP_PLY = 6;
-	// num plies at which to record moves for visual display
-	public static final int RECORD_MOVE_PLY = 4;
-
-	public static int orderPly; // max ply at which to do move-ordering
-	public static int transposePly; // max ply at which to check transposition
-									// table for repeated position
-	public static int hashPly; // max ply at which to enter nodes in
-							   // transposition table
-	public static int negascoutPly; // ply at which to use negascout algorithm
-
-	public static long stopTime; // when to stop searching
-	public static byte searchDepth; // depth at which to use static evaluation
-	public static int nodesSearched; // number of nodes visited this search
-	public static boolean doneStaticEval; // whether a static evaluation has
-										  // been done this search
-	public static Evaluator evaluator; // Evaluator for static evaluations
-	public static final HashMap<Integer, TableEntry> transpositionTable =
-		new HashMap<Integer, TableEntry>(1000000, 0.5f);
-
-	public Board b; // Current board position for this search
-	public byte ply; // Current ply for this search
-	public int bestMove; // Best move found from b
-	public int bestValue; // Score of the best move found from b
-	public Node bestChild;  // This node's best child node
-
-	// previously found good moves for history heuristic
-	long strongMoves;
-	long lastStrongMoves;
-
-	/**
-	 * Sets when to do various search algorithms based on the current
-	 * search depth.
-	 */
-	public static void setDecisionPlies(boolean negascout) {
-		orderPly = Math.min(searchDepth - 4, 9);
-		transposePly = Math.min(searchDepth - 3, 10);
-		hashPly = Math.max(orderPly + 1, transposePly);
-		negascoutPly = negascout ? orderPly - 1 : -1;
-	}
-
-	/** Creates a new Node */
-	public Node(Board b, byte ply) {
-		this.b = b;
-		this.ply = ply;
-	}
-
-	/** Search */
-	public int negaMax(int alpha, int beta) {
-	    // stop searching if gone over time
-		if(searchDepth == 0 || (ply <= FORCE_STOP_PLY && System.nanoTime() > stopTime)) {
-			searchDepth = 0;
-			return 0;
-		}
-
-		nodesSearched++;
-
-		// game is over, return score of final position
-		if(b.gameOver) {
-			return store(WIN_MULTIPLIER * Evaluator.pieces(b), EXACT);
-		}
-
-		// forced pass
-		if(b.legalMoves == 0) {
-			Node child = new Node(new Board(b, Board.PASS), (byte)(ply + 1));
-			int childValue = -child.negaMax(-beta, -alpha);
-			if(childValue > alpha) {
-				if(childValue >= beta) {
-					return store(childValue, LOWER_BOUND);
-				}
-				if(ply <= RECORD_MOVE_PLY) {
-					bestMove = Board.PASS;
-					bestValue = alpha;
-					bestChild = child;
-				}
-				return store(childValue, EXACT);
-			}
-			return store(alpha, UPPER_BOUND);
-		}
-
-		// if we have seen this position before in the current search,
-		// avoid repeated computation by using its stored value
-		if(ply <= transposePly && transpositionTable.containsKey(b.hashCode())) {
-			TableEntry e = transpositionTable.get(b.hashCode());
-			if(e.depth == searchDepth) {
-				if(e.type == EXACT) {
-					return e.v;
-				} else if(e.type == LOWER_BOUND) {
-					alpha = Math.max(alpha, e.v);
-				} else {
-					beta = Math.min(beta, e.v);
-				}
-			}
-			if(alpha >= beta) {
-				return alpha;
-			}
-		}
-
-		// at search depth, return static evaluation function
-		if(ply >= searchDepth) {
-			doneStaticEval = true;
-			return store(evaluator.eval(b), EXACT);
-		}
-
-		// use history heuristic 2 plies after move ordering and killer move
-		// heuristic after that
-		boolean killerMoveHeuristic = true;
-		boolean historyHeuristic = (ply == orderPly + 1 || ply == orderPly + 2);
-		boolean prepareForHistory = (ply == orderPly - 1 || ply == orderPly);
-
-		// move ordering for better alpha-beta pruning performance
-		Board[] children = null;
-		int numChildren = 0;
-		if(ply <= orderPly) {
-			children = new Board[31];
-			while(b.legalMoves != 0) {
-				Board c = children[numChildren] = new Board(b, b.getNextMove());
-				c.value = -evaluator.eval(c);
-				if(transpositionTable.containsKey(c.hashCode())) {
-					TableEntry e = transpositionTable.get(c.hashCode());
-					c.value += 67108864 * e.depth;
-					c.value -= 4096 * (e.v + e.type);
-				}
-				numChildren++;
-			}
-			Arrays.sort(children, 0, numChildren);
-
-			// record the best couple moves for history heuristic
-			if(prepareForHistory) {
-				lastStrongMoves = strongMoves;
-				strongMoves = 0;
-				for(int i = 0; i < numChildren/3; i++) {
-					strongMoves |= (1L << children[i].lastMove);
-				}
-			}
-		}
-
-		// expand this node
-		byte type = UPPER_BOUND;
-		int n = 0;
-
-		while(b.legalMoves != 0 || n < numChildren) {
-			Board nextBoard;
-
-			if(numChildren != 0) {
-				// move ordering
-				nextBoard = children[n++];
-			} else if(historyHeuristic) {
-				// history heuristic: try out moves that were found to be good previously first
-				long moves = (b.legalMoves & lastStrongMoves);
-				if(moves == 0) {
-				 	historyHeuristic = false;
-				 	nextBoard = new Board(b, b.getNextMove());
-				} else {
-					nextBoard = new Board(b, b.getNextMove(moves));
-				}
-			} else if(killerMoveHeuristic) {
-				// killer move heuristic: try corner moves first
-				long moves = (b.legalMoves & Utils.corners);
-				if(moves == 0) {
-					 killerMoveHeuristic = false;
-					 nextBoard = new Board(b, b.getNextMove());
-				} else {
-					nextBoard = new Board(b, b.getNextMove(moves));
-				}
-			} else {
-				// regular move generation
-				nextBoard = new Board(b, b.getNextMove());
-			}
-
-			Node child = new Node(nextBoard, (byte)(ply + 1));
-
-			// pass on the best couple moves for history heuristic
-			if(prepareForHistory) {
-				child.strongMoves = strongMoves;
-				child.lastStrongMoves = lastStrongMoves;
-			} else if(ply == orderPly + 1) {
-				child.strongMoves = lastStrongMoves;
-				child.lastStrongMoves = strongMoves;
-			}
-
-			// NegaScout search
-			int childValue;
-			if(ply <= negascoutPly && n > 1) {
-				long l = nextBoard.legalMoves;
-				childValue = -child.negaMax(-alpha - 1, -alpha);
-				if(childValue > alpha && childValue < beta) {
-					nextBoard.legalMoves = l;
-					childValue = -child.negaMax(-beta, -childValue);
-				}
-			} else {
-				childValue = -child.negaMax(-beta, -alpha);
-			}
-
-			// new best move found!
-			if(childValue > alpha) {
-				type = EXACT;
-				alpha = childValue;
-				if(ply <= RECORD_MOVE_PLY) {
-					bestMove = nextBoard.lastMove;
-					bestValue = alpha;
-					bestChild = child;
-				}
-			}
-
-			// alpha-beta pruning
-			if(alpha >= beta) {
-				return store(alpha, LOWER_BOUND);
-			}
-		}
-
-		return store(alpha, type);
-	}
-
-	/** Stores the given value and entry type in the transposition table */
-	public int store(int v, byte type) {
-		if(ply <= hashPly) {
-			transpositionTable.put(b.hashCode(), new TableEntry(v, type));
-		}
-		return v;
-	}
+package othellosaurus;
+import java.util.Arrays;
+
+/**
+ * Represents a Node in a game tree.
+ *  Search uses:
+ *  - Negamax search with alpha-beta pruning
+ *  - Transposition tables, whose best moves are tried first
+ *  - Iterative deepening with move ordering
+ *  - History heuristic
+ *  - Killer move heuristic
+ *  - Lazy SMP: helper threads search the same position with staggered depths
+ *    and move orders, sharing results through the transposition table
+ *  - Multi-ProbCut (when the Search has parameters for it): shallow searches
+ *    predict which nodes a deep search would cut, and those are cut early
+ *
+ *  Optional:
+ *   - Negascout search: This makes search faster in most positions but slower
+ *     when what is considered the best line changes a frequently at high ply.
+ *     Unfortunately, this is exactly when we want search to be deep, so in general
+ *     it seems to (very slightly) hurt performance
+ */
+public class Node {
+	// types of stored evaluations in the transposition table
+	public static final byte EXACT = 0;
+	public static final byte LOWER_BOUND = 1;
+	public static final byte UPPER_BOUND = -1;
+
+	// just a big power of two
+	public static final int WIN_MULTIPLIER = 4194304;
+
+	// max ply at which to check if computations have gone over the time limit
+	public static final int FORCE_STOP_PLY = 6;
+	// num plies at which to record moves for visual display
+	public static final int RECORD_MOVE_PLY = 4;
+
+
+	public final Search s; // Search this node belongs to
+	public final byte ply; // Current ply for this search
+	public Board b; // Current board position for this search
+	public int bestMove; // Best move found from b
+	public int bestValue; // Score of the best move found from b
+	public final int[] pv = new int[RECORD_MOVE_PLY + 1]; // best line found from b
+	public int pvLength; // number of moves in pv
+
+	// boards reused for every position searched at this ply, so search
+	// does not allocate
+	private final Board board;
+	private final Board[] children;
+
+	// previously found good moves for history heuristic
+	long strongMoves;
+	long lastStrongMoves;
+
+	// static evaluations done by the search before reaching this node, so
+	// store can tell whether the value found for b is exact
+	private int staticEvals;
+
+	/**
+	 * Creates a new Node. A Search creates one node for each ply and reuses
+	 * it for every position reached at that ply.
+	 */
+	public Node(Search s, byte ply) {
+		this.s = s;
+		this.ply = ply;
+		board = new Board();
+		if(ply <= Search.MAX_ORDER_PLY) {
+			children = new Board[Search.MAX_MOVES];
+			for(int i = 0; i < children.length; i++) {
+				children[i] = new Board();
+			}
+		} else {
+			children = null;
+		}
+	}
+
+	/** Search */
+	public int negaMax(int alpha, int beta) {
+	    // stop searching if gone over time
+		if(s.searchDepth == 0 || (ply <= FORCE_STOP_PLY && System.nanoTime() > s.stopTime)) {
+			s.searchDepth = 0;
+			return 0;
+		}
+
+		s.nodesSearched++;
+		pvLength = 0;
+		staticEvals = s.staticEvals;
+
+		// game is over, return score of final position
+		if(b.gameOver) {
+			return store(WIN_MULTIPLIER * Evaluator.pieces(b), EXACT, TranspositionTable.NO_MOVE);
+		}
+
+		// forced pass
+		if(b.legalMoves == 0) {
+			Node child = s.nodes[ply + 1];
+			child.b = child.board;
+			child.b.set(b, Board.PASS);
+			child.strongMoves = 0;
+			child.lastStrongMoves = 0;
+			int childValue = -child.negaMax(-beta, -alpha);
+			if(childValue > alpha) {
+				if(childValue >= beta) {
+					return store(childValue, LOWER_BOUND, TranspositionTable.NO_MOVE);
+				}
+				if(ply <= RECORD_MOVE_PLY) {
+					bestMove = Board.PASS;
+					bestValue = alpha;
+					recordLine(child);
+				}
+				return store(childValue, EXACT, TranspositionTable.NO_MOVE);
+			}
+			return store(alpha, UPPER_BOUND, TranspositionTable.NO_MOVE);
+		}
+
+		// if we have searched this position at least as deep before, in this
+		// search or an earlier one, avoid repeated computation by using its
+		// stored value (except at the root, which must find a move), and
+		// otherwise try the best move it found first
+		int hashMove = TranspositionTable.NO_MOVE;
+		if(ply != 0 && ply <= s.transposePly) {
+			s.ttProbes++;
+			long e = s.transpositionTable.probe(s.key(b));
+			if(e != TranspositionTable.NONE) {
+				s.ttHits++;
+				hashMove = s.boardMove(b, TranspositionTable.move(e));
+				int depth = TranspositionTable.depth(e);
+				if(depth >= s.searchDepth - ply) {
+					if(depth != TranspositionTable.SOLVED) {
+						s.staticEvals++;
+					}
+					int v = TranspositionTable.value(e);
+					byte type = TranspositionTable.type(e);
+					if(type == EXACT) {
+						s.ttCutoffs++;
+						return v;
+					} else if(type == LOWER_BOUND) {
+						alpha = Math.max(alpha, v);
+					} else {
+						beta = Math.min(beta, v);
+					}
+				}
+				if(alpha >= beta) {
+					s.ttCutoffs++;
+					return alpha;
+				}
+			}
+		}
+
+		// at search depth, return static evaluation function
+		if(ply >= s.searchDepth) {
+			s.staticEvals++;
+			return store(s.eval(b), EXACT, TranspositionTable.NO_MOVE);
+		}
+
+		// forward pruning: a shallow search predicts this node's search fails
+		if(s.probCut != null && !s.probCutting && ply != 0
+				&& s.searchDepth - ply >= ProbCut.MIN_DEPTH && s.searchDepth - ply <= ProbCut.MAX_DEPTH) {
+			int cut = probCut(alpha, beta, s.searchDepth - ply);
+			if(cut != 0) {
+				s.staticEvals++; // a predicted value, so no ancestor is solved
+				return cut > 0 ? beta : alpha;
+			}
+		}
+
+		// use history heuristic 2 plies after move ordering and killer move
+		// heuristic after that
+		boolean killerMoveHeuristic = true;
+		boolean historyHeuristic = (ply == s.orderPly + 1 || ply == s.orderPly + 2);
+		boolean prepareForHistory = (ply == s.orderPly - 1 || ply == s.orderPly);
+
+		// move ordering for better alpha-beta pruning performance
+		int numChildren = 0;
+		if(ply <= s.orderPly) {
+			while(b.legalMoves != 0) {
+				Board c = children[numChildren];
+				c.set(b, b.getNextMove());
+				c.value = -s.eval(c);
+				long ce = s.transpositionTable.probe(s.key(c));
+				if(ce != TranspositionTable.NONE) {
+					c.value += 67108864 * Math.min(TranspositionTable.depth(ce), 15);
+					c.value -= 4096 * (TranspositionTable.value(ce) + TranspositionTable.type(ce));
+				}
+				numChildren++;
+			}
+			Arrays.sort(children, 0, numChildren);
+
+			// helper threads try a different first move at the root so they
+			// fill the table with lines the main thread has not reached yet
+			if(ply == 0 && s.id != 0) {
+				int i = s.id % numChildren;
+				Board c = children[0];
+				children[0] = children[i];
+				children[i] = c;
+			}
+
+			// record the best couple moves for history heuristic
+			if(prepareForHistory) {
+				lastStrongMoves = strongMoves;
+				strongMoves = 0;
+				for(int i = 0; i < numChildren/3; i++) {
+					strongMoves |= (1L << children[i].lastMove);
+				}
+			}
+		}
+
+		// expand this node
+		byte type = UPPER_BOUND;
+		int best = TranspositionTable.NO_MOVE; // move that raised alpha
+		int n = 0;
+		int tried = 0; // children searched, ordered or not
+		if(hashMove >= 0 && (b.legalMoves & (1L << hashMove)) == 0) {
+			hashMove = TranspositionTable.NO_MOVE; // ordered children took the moves
+		}
+
+		Node child = s.nodes[ply + 1];
+
+		while(b.legalMoves != 0 || n < numChildren) {
+			if(numChildren != 0) {
+				// move ordering
+				child.b = children[n++];
+			} else {
+				int move;
+				if(hashMove >= 0) {
+					// best move stored in the transposition table
+					move = b.getNextMove(1L << hashMove);
+					hashMove = TranspositionTable.NO_MOVE;
+				} else if(historyHeuristic) {
+					// history heuristic: try out moves that were found to be good previously first
+					long moves = (b.legalMoves & lastStrongMoves);
+					if(moves == 0) {
+					 	historyHeuristic = false;
+					 	move = b.getNextMove();
+					} else {
+						move = b.getNextMove(moves);
+					}
+				} else if(killerMoveHeuristic) {
+					// killer move heuristic: try corner moves first
+					long moves = (b.legalMoves & Utils.corners);
+					if(moves == 0) {
+						 killerMoveHeuristic = false;
+						 move = b.getNextMove();
+					} else {
+						move = b.getNextMove(moves);
+					}
+				} else {
+					// regular move generation
+					move = b.getNextMove();
+				}
+				child.b = child.board;
+				child.b.set(b, move);
+			}
+			Board nextBoard = child.b;
+			tried++;
+
+			// pass on the best couple moves for history heuristic
+			if(prepareForHistory) {
+				child.strongMoves = strongMoves;
+				child.lastStrongMoves = lastStrongMoves;
+			} else if(ply == s.orderPly + 1) {
+				child.strongMoves = lastStrongMoves;
+				child.lastStrongMoves = strongMoves;
+			} else {
+				child.strongMoves = 0;
+				child.lastStrongMoves = 0;
+			}
+
+			// NegaScout search
+			int childValue;
+			if(ply <= s.negascoutPly && n > 1) {
+				long l = nextBoard.legalMoves;
+				childValue = -child.negaMax(-alpha - 1, -alpha);
+				if(childValue > alpha && childValue < beta) {
+					nextBoard.legalMoves = l;
+					childValue = -child.negaMax(-beta, -childValue);
+				}
+			} else {
+				childValue = -child.negaMax(-beta, -alpha);
+			}
+
+			// new best move found!
+			if(childValue > alpha) {
+				type = EXACT;
+				alpha = childValue;
+				best = nextBoard.lastMove;
+				if(ply <= RECORD_MOVE_PLY) {
+					bestMove = nextBoard.lastMove;
+					bestValue = alpha;
+					recordLine(child);
+				}
+			}
+
+			// alpha-beta pruning
+			if(alpha >= beta) {
+				s.betaCutoffs++;
+				if(tried == 1) {
+					s.firstMoveCutoffs++;
+				}
+				return store(alpha, LOWER_BOUND, best);
+			}
+		}
+
+		return store(alpha, type, best);
+	}
+
+	/**
+	 * Multi-ProbCut: searches b to the shallow depth for the given depth,
+	 * with a window at which the value of the full search is predicted to be
+	 * at least beta (or at most alpha) with high probability. The shallow
+	 * search is only tried on the side the static evaluation is already
+	 * past, where a cut is likely. Returns 1 if the search would fail high,
+	 * -1 if it would fail low and 0 otherwise. The shallow search reuses
+	 * this node, so what it changes is restored.
+	 */
+	private int probCut(int alpha, int beta, int depth) {
+		int phase = ProbCut.phase(b.numPieces);
+		double a = s.probCut.slope[phase][depth];
+		if(a <= 0) {
+			return 0;
+		}
+		double margin = s.probCutThreshold * s.probCut.sigma[phase][depth];
+		double intercept = s.probCut.intercept[phase][depth];
+		byte searchDepth = s.searchDepth;
+		long legalMoves = b.legalMoves;
+		long strong = strongMoves;
+		long lastStrong = lastStrongMoves;
+
+		int high = (beta < WIN_MULTIPLIER ? (int)Math.ceil((beta + margin - intercept) / a)
+				: Integer.MAX_VALUE);
+		int low = (alpha > -WIN_MULTIPLIER ? (int)Math.floor((alpha - margin - intercept) / a)
+				: Integer.MIN_VALUE);
+		int v = s.eval(b); // unlikely to cut unless already past a bound
+		if(v < high && v > low) {
+			return 0;
+		}
+
+		s.searchDepth = (byte)(ply + ProbCut.shallowDepth(depth));
+		s.probCutting = true;
+		int cut;
+		if(v >= high) {
+			cut = (negaMax(high - 1, high) >= high ? 1 : 0);
+		} else {
+			cut = (negaMax(low, low + 1) <= low ? -1 : 0);
+		}
+		b.legalMoves = legalMoves;
+		s.probCutting = false;
+		if(s.searchDepth == 0) {
+			return 0; // stopped
+		}
+		s.searchDepth = searchDepth;
+		strongMoves = strong;
+		lastStrongMoves = lastStrong;
+		pvLength = 0;
+		return cut;
+	}
+
+	/** Records bestMove followed by the best line found from child as the best line */
+	private void recordLine(Node child) {
+		pv[0] = bestMove;
+		System.arraycopy(child.pv, 0, pv, 1, child.pvLength);
+		pvLength = child.pvLength + 1;
+	}
+
+	/**
+	 * Stores the given value, entry type and best move (or NO_MOVE) in the
+	 * transposition table. The value is stored as solved if no static
+	 * evaluation was used to find it. Values of a search that ran out of
+	 * time are not stored.
+	 */
+	public int store(int v, byte type, int move) {
+		if(ply <= s.hashPly && s.searchDepth != 0) {
+			int depth = (s.staticEvals == staticEvals ?
+					TranspositionTable.SOLVED : s.searchDepth - ply);
+			s.transpositionTable.store(s.key(b), v, type, depth, s.tableMove(b, move));
+		}
+		return v;
+	}
 }
\ No newline at end of file
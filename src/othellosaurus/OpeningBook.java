@@ -0,0 +1,184 @@
+package othellosaurus;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+
+/**
+ * Opening book read from a binary file of records sorted by position key.
+ * Keys are canonical keys (see Board.canonicalKey), so each position is
+ * stored once for all of its symmetries, and moves are stored for the
+ * position in its canonical orientation.
+ * The file is memory mapped read-only, so opening a book takes the same
+ * time whatever its size and the operating system shares its pages between
+ * every engine reading the same file.
+ *
+ * File layout (big-endian):
+ *   header: MAGIC (8 bytes), number of records (8 bytes)
+ *   records: key (8 bytes), best move (4 bytes), score (4 bytes)
+ */
+public class OpeningBook {
+	public static final long MAGIC = 0x4f74686c426b3032L; // "OthlBk02"
+	public static final int HEADER_BYTES = 16;
+	public static final int RECORD_BYTES = 16;
+	// interpolation steps to try before falling back to binary search
+	private static final int INTERPOLATION_STEPS = 8;
+
+	private final MappedByteBuffer buffer;
+	private final int size;
+
+	/** Opens the book stored in the given file */
+	public OpeningBook(File file) throws IOException {
+		RandomAccessFile f = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = f.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			f.close();
+		}
+		if(buffer.capacity() < HEADER_BYTES || buffer.getLong(0) != MAGIC) {
+			throw new IOException("Not an opening book: " + file);
+		}
+		size = (int)buffer.getLong(8);
+		if(buffer.capacity() < HEADER_BYTES + (long)size * RECORD_BYTES) {
+			throw new IOException("Truncated opening book: " + file);
+		}
+	}
+
+	/** Returns the number of positions in this book */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the index of the record for the given key, or -1 if the key
+	 * is not in the book. Hash keys are spread evenly, so interpolation
+	 * search finds most keys in a couple of steps.
+	 */
+	public int find(long key) {
+		int lo = 0;
+		int hi = size - 1;
+		for(int step = 0; lo <= hi; step++) {
+			long loKey = key(lo);
+			long hiKey = key(hi);
+			if(key < loKey || key > hiKey) {
+				return -1;
+			}
+
+			int mid;
+			if(step < INTERPOLATION_STEPS && hiKey != loKey) {
+				mid = lo + (int)((hi - lo) * (((double)key - loKey) / ((double)hiKey - loKey)));
+				mid = Math.max(lo, Math.min(hi, mid));
+			} else {
+				mid = (lo + hi) >>> 1;
+			}
+
+			long midKey = key(mid);
+			if(midKey == key) {
+				return mid;
+			} else if(midKey < key) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return -1;
+	}
+
+	/** Returns the key of the given record */
+	public long key(int i) {
+		return buffer.getLong(HEADER_BYTES + i * RECORD_BYTES);
+	}
+
+	/** Returns the best move of the given record */
+	public int move(int i) {
+		return buffer.getInt(HEADER_BYTES + i * RECORD_BYTES + 8);
+	}
+
+	/** Returns the score of the best move of the given record */
+	public int score(int i) {
+		return buffer.getInt(HEADER_BYTES + i * RECORD_BYTES + 12);
+	}
+
+	/** Writes a book with the given records, which need not be sorted */
+	public static void write(File file, long[] keys, int[] moves, int[] scores) throws IOException {
+		// sort the records by key
+		Integer[] order = new Integer[keys.length];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		final long[] k = keys;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Long.compare(k[a], k[b]);
+			}
+		});
+
+		DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeLong(MAGIC);
+			out.writeLong(keys.length);
+			for(int i : order) {
+				out.writeLong(keys[i]);
+				out.writeInt(moves[i]);
+				out.writeInt(scores[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Builds a book by searching every position up to the given number of
+	 * plies from the start position.
+	 *   java othellosaurus.OpeningBook <file> [plies] [depth]
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : "book.bin");
+		int plies = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		// collect the distinct positions at each ply
+		ArrayList<Board> positions = new ArrayList<Board>();
+		HashSet<Long> seen = new HashSet<Long>();
+		ArrayList<Board> ply = new ArrayList<Board>();
+		ply.add(new Board());
+		for(int i = 0; i <= plies; i++) {
+			ArrayList<Board> nextPly = new ArrayList<Board>();
+			for(Board b : ply) {
+				if(b.legalMoves == 0 || !seen.add(b.canonicalKey())) {
+					continue;
+				}
+				positions.add(b);
+				for(long m = b.legalMoves; m != 0; m &= m - 1) {
+					nextPly.add(new Board(b, Utils.bitScanForward(m)));
+				}
+			}
+			ply = nextPly;
+		}
+
+		// search each position
+		Agent a = new Agent(new Evaluator(), false, depth, 1e6);
+		long[] keys = new long[positions.size()];
+		int[] moves = new int[keys.length];
+		int[] scores = new int[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			Board b = positions.get(i);
+			int t = b.canonicalTransform();
+			keys[i] = b.transformedHash(t);
+			moves[i] = Utils.transformSquare(a.getMove(new Board(b)), t);
+			scores[i] = a.bestValue;
+		}
+		write(file, keys, moves, scores);
+		System.out.println("Wrote " + keys.length + " positions to " + file);
+	}
+}
@@ -0,0 +1,373 @@
+package othellosaurus;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Othello static evaluator built from patterns: every way the squares of an
+ * edge, corner region, line or diagonal can be filled (empty, the mover's
+ * or the opponent's) has its own weight, looked up by the base 3 number the
+ * squares spell. Each pattern is read in all 8 orientations of the board,
+ * so each physical edge, corner and line shares the same weights. Weights
+ * depend on the phase of the game and are fit to the final scores of games
+ * (see main), so evaluations are in 1/DISC units of final disc difference.
+ */
+public class PatternEvaluator extends Evaluator {
+	public static final long MAGIC = 0x4f74686c50617431L; // "OthlPat1"
+	public static final int DISC = 128; // evaluation of a one disc lead
+
+	// squares (in base orientation) of each pattern
+	public static final int EDGE_2X = 0; // first row and both X squares
+	public static final int CORNER_3X3 = 1; // 3x3 block in a corner
+	public static final int CORNER_2X5 = 2; // 2x5 block along an edge from a corner
+	public static final int LINE_2 = 3; // second row
+	public static final int LINE_3 = 4; // third row
+	public static final int LINE_4 = 5; // fourth row
+	public static final int DIAG_8 = 6; // main diagonal
+	public static final int DIAG_7 = 7; // diagonals next to it, shorter each time
+	public static final int DIAG_6 = 8;
+	public static final int DIAG_5 = 9;
+	public static final int DIAG_4 = 10;
+	public static final int NUM_PATTERNS = 11;
+	public static final int[] PATTERN_SQUARES = {10, 9, 10, 8, 8, 8, 8, 7, 6, 5, 4};
+
+	// index of the first weight of each pattern, then the extra weights
+	public static final int[] OFFSET = new int[NUM_PATTERNS];
+	public static final int MOBILITY; // weight per move of mobility
+	public static final int BIAS; // constant weight
+	public static final int NUM_WEIGHTS;
+	static {
+		int offset = 0;
+		for(int i = 0; i < NUM_PATTERNS; i++) {
+			OFFSET[i] = offset;
+			offset += pow3(PATTERN_SQUARES[i]);
+		}
+		MOBILITY = offset;
+		BIAS = offset + 1;
+		NUM_WEIGHTS = offset + 2;
+	}
+	public static final int NUM_FEATURES = Utils.NUM_TRANSFORMS * NUM_PATTERNS; // pattern
+																	// weights per evaluation
+
+	// phases of the game, each with its own weights
+	public static final int NUM_PHASES = 6;
+	public static final int PIECES_PER_PHASE = 10;
+
+	// bits (in base orientation) of each diagonal, from the longest
+	private static final long[] DIAGONALS = new long[5];
+	static {
+		for(int k = 0; k < DIAGONALS.length; k++) {
+			for(int x = 0; x + k < 8; x++) {
+				DIAGONALS[k] |= 1L << Utils.getIndex(x + k, x);
+			}
+		}
+	}
+	private static final long FILE_A = 0x0101010101010101L;
+
+	// weights for each phase of the game
+	public final short[][] weights;
+
+	/**
+	 * Constructs a pattern evaluator with the given weights for each phase
+	 */
+	public PatternEvaluator(short[][] weights) {
+		this.weights = weights;
+	}
+
+	/**
+	 * Reads a pattern evaluator from a binary weights file:
+	 *   MAGIC (8 bytes), number of phases (4 bytes), weights per phase (4 bytes),
+	 *   then the weights of each phase in turn (2 bytes each)
+	 */
+	public static PatternEvaluator read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if(in.readLong() != MAGIC) {
+				throw new IOException(file + " is not a pattern weights file");
+			}
+			int phases = in.readInt();
+			int count = in.readInt();
+			if(phases != NUM_PHASES || count != NUM_WEIGHTS) {
+				throw new IOException(file + " has weights for different patterns");
+			}
+			short[][] weights = new short[phases][count];
+			for(short[] w : weights) {
+				for(int i = 0; i < count; i++) {
+					w[i] = in.readShort();
+				}
+			}
+			return new PatternEvaluator(weights);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the weights to a file in the format read by read
+	 */
+	public void write(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeLong(MAGIC);
+			out.writeInt(weights.length);
+			out.writeInt(NUM_WEIGHTS);
+			for(short[] w : weights) {
+				for(int i = 0; i < NUM_WEIGHTS; i++) {
+					out.writeShort(w[i]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns a static evaluation for b
+	 */
+	public int eval(Board b) {
+		long p = b.pieces[b.mover];
+		long o = b.pieces[b.opponent];
+		short[] w = weights[phase(b.numPieces)];
+		int score = w[BIAS] + w[MOBILITY] * (Utils.bitCount(b.legalMoves)
+				- Utils.bitCount(Board.moveGenerator.getMoves(o, p)));
+
+		// the 8 orientations, each found from an earlier one with one step
+		// (the same as Utils.transform but without repeating work)
+		long mp = Utils.transform(p, 1), mo = Utils.transform(o, 1);
+		long tp = Utils.transform(p, 4), to = Utils.transform(o, 4);
+		long tmp = Utils.transform(tp, 1), tmo = Utils.transform(to, 1);
+		score += patterns(w, p, o) + patterns(w, Long.reverseBytes(p), Long.reverseBytes(o))
+			   + patterns(w, mp, mo) + patterns(w, Long.reverseBytes(mp), Long.reverseBytes(mo))
+			   + patterns(w, tp, to) + patterns(w, Long.reverseBytes(tp), Long.reverseBytes(to))
+			   + patterns(w, tmp, tmo) + patterns(w, Long.reverseBytes(tmp), Long.reverseBytes(tmo));
+		return score;
+	}
+
+	/**
+	 * Returns the sum of the weights w of the patterns in base orientation
+	 * with the mover owning p and the opponent owning o
+	 */
+	private static int patterns(short[] w, long p, long o) {
+		return w[OFFSET[EDGE_2X] + index(edge2X(p), edge2X(o))]
+			 + w[OFFSET[CORNER_3X3] + index(corner3x3(p), corner3x3(o))]
+			 + w[OFFSET[CORNER_2X5] + index(corner2x5(p), corner2x5(o))]
+			 + w[OFFSET[LINE_2] + index(row(p, 1), row(o, 1))]
+			 + w[OFFSET[LINE_3] + index(row(p, 2), row(o, 2))]
+			 + w[OFFSET[LINE_4] + index(row(p, 3), row(o, 3))]
+			 + w[OFFSET[DIAG_8] + index(diagonal(p, 0), diagonal(o, 0))]
+			 + w[OFFSET[DIAG_7] + index(diagonal(p, 1), diagonal(o, 1))]
+			 + w[OFFSET[DIAG_6] + index(diagonal(p, 2), diagonal(o, 2))]
+			 + w[OFFSET[DIAG_5] + index(diagonal(p, 3), diagonal(o, 3))]
+			 + w[OFFSET[DIAG_4] + index(diagonal(p, 4), diagonal(o, 4))];
+	}
+
+	/**
+	 * Puts the index of the weight of every pattern of the position with the
+	 * mover owning p and the opponent owning o into features (NUM_FEATURES
+	 * entries), the same weights eval adds up
+	 */
+	public static void features(long p, long o, int[] features) {
+		int f = 0;
+		for(int t = 0; t < Utils.NUM_TRANSFORMS; t++) {
+			long tp = Utils.transform(p, t);
+			long to = Utils.transform(o, t);
+			features[f++] = OFFSET[EDGE_2X] + index(edge2X(tp), edge2X(to));
+			features[f++] = OFFSET[CORNER_3X3] + index(corner3x3(tp), corner3x3(to));
+			features[f++] = OFFSET[CORNER_2X5] + index(corner2x5(tp), corner2x5(to));
+			features[f++] = OFFSET[LINE_2] + index(row(tp, 1), row(to, 1));
+			features[f++] = OFFSET[LINE_3] + index(row(tp, 2), row(to, 2));
+			features[f++] = OFFSET[LINE_4] + index(row(tp, 3), row(to, 3));
+			for(int k = 0; k < DIAGONALS.length; k++) {
+				features[f++] = OFFSET[DIAG_8 + k] + index(diagonal(tp, k), diagonal(to, k));
+			}
+		}
+	}
+
+	/**
+	 * Returns the mobility of the mover owning p against the opponent owning
+	 * o, the number of moves the mover has minus the number the opponent has
+	 */
+	public static int mobility(long p, long o) {
+		return Utils.bitCount(Board.moveGenerator.getMoves(p, o))
+			 - Utils.bitCount(Board.moveGenerator.getMoves(o, p));
+	}
+
+	/** Returns the phase of the game with numPieces on the board */
+	public static int phase(int numPieces) {
+		return Math.min(NUM_PHASES - 1, Math.max(0, numPieces - 5) / PIECES_PER_PHASE);
+	}
+
+	/**
+	 * Returns the index of the pattern filled with the bits of pattern
+	 * squares owned by the mover and the opponent
+	 */
+	private static int index(int moverBits, int opponentBits) {
+		return Utils.ternary[moverBits] + 2 * Utils.ternary[opponentBits];
+	}
+
+	/** Returns the bits of the first row and the X squares next to it */
+	private static int edge2X(long b) {
+		return (int)(b & 255) | (int)((b >>> 9) & 1) << 8 | (int)((b >>> 14) & 1) << 9;
+	}
+
+	/** Returns the bits of the 3x3 block in the first corner */
+	private static int corner3x3(long b) {
+		return (int)(b & 7) | (int)((b >>> 8) & 7) << 3 | (int)((b >>> 16) & 7) << 6;
+	}
+
+	/** Returns the bits of the 2x5 block from the first corner along the first row */
+	private static int corner2x5(long b) {
+		return (int)(b & 31) | (int)((b >>> 8) & 31) << 5;
+	}
+
+	/** Returns the bits of row y */
+	private static int row(long b, int y) {
+		return (int)(b >>> (8 * y)) & 255;
+	}
+
+	/**
+	 * Returns the bits of the k-th diagonal, gathered into one byte by
+	 * multiplying (no two squares share a column, so nothing carries)
+	 */
+	private static int diagonal(long b, int k) {
+		return (int)(((b & DIAGONALS[k]) * FILE_A) >>> (56 + k));
+	}
+
+	/** Returns 3 to the power n */
+	private static int pow3(int n) {
+		int p = 1;
+		for(int i = 0; i < n; i++) {
+			p *= 3;
+		}
+		return p;
+	}
+
+	/**
+	 * Returns an evaluation found with numPieces on the board in a form
+	 * readable by people: the expected final disc difference
+	 */
+	public String scoreString(int value, int numPieces) {
+		return String.format(" (%1.2fd) ", (double)value / DISC);
+	}
+
+	/**
+	 * Fits weights to a training data set (see TrainingData) by gradient
+	 * descent on the squared error from the final scores, streaming the
+	 * data from disk each epoch. One position in
+	 * TrainingData.VALIDATION_EVERY is kept out of the fit to check the
+	 * weights on positions they were not fit to.
+	 *   java othellosaurus.PatternEvaluator <training data> <weights file> [epochs]
+	 */
+	public static void main(String[] args) throws IOException {
+		File data = new File(args[0]);
+		File output = new File(args[1]);
+		int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		new Fit(data).run(epochs).write(output);
+		System.out.println("Wrote weights to " + output);
+	}
+
+	/**
+	 * Least squares fit of the weights of each phase. Each epoch moves every
+	 * weight by the average error of the positions it appears in, divided by
+	 * the number of weights in an evaluation so that all the weights of a
+	 * position moving at once do not overshoot.
+	 */
+	private static class Fit {
+		private static final double RATE = 1.0 / (NUM_FEATURES + 2);
+		private static final double REGULARIZATION = 2; // pulls weights seen in
+													// few positions towards 0
+		private final File data;
+		private final double[][] weights = new double[NUM_PHASES][NUM_WEIGHTS];
+		private final double[][] gradient = new double[NUM_PHASES][NUM_WEIGHTS];
+		private final double[][] count = new double[NUM_PHASES][NUM_WEIGHTS]; // training
+													// positions with each weight
+		private final int[] features = new int[NUM_FEATURES];
+
+		public Fit(File data) throws IOException {
+			this.data = data;
+			pass(true);
+		}
+
+		/** Fits the weights for the given number of epochs and returns the evaluator */
+		public PatternEvaluator run(int epochs) throws IOException {
+			for(int epoch = 1; epoch <= epochs; epoch++) {
+				double[] errors = pass(false);
+				for(int phase = 0; phase < NUM_PHASES; phase++) {
+					for(int i = 0; i < NUM_WEIGHTS; i++) {
+						weights[phase][i] -= RATE * (gradient[phase][i]
+								+ REGULARIZATION * weights[phase][i])
+								/ (count[phase][i] + REGULARIZATION);
+						gradient[phase][i] = 0;
+					}
+				}
+				System.out.println(String.format("epoch %3d  rms error (discs)  training: %.3f  validation: %.3f",
+						epoch, errors[0], errors[1]));
+			}
+
+			short[][] w = new short[NUM_PHASES][NUM_WEIGHTS];
+			for(int phase = 0; phase < NUM_PHASES; phase++) {
+				for(int i = 0; i < NUM_WEIGHTS; i++) {
+					w[phase][i] = (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE,
+							Math.round(weights[phase][i] * DISC)));
+				}
+			}
+			return new PatternEvaluator(w);
+		}
+
+		/**
+		 * Reads the whole data set, counting weight appearances if counting
+		 * and otherwise adding up the gradient, and returns the rms error of
+		 * the training and validation positions
+		 */
+		private double[] pass(boolean counting) throws IOException {
+			double[] squares = new double[2];
+			long[] n = new long[2];
+			TrainingData in = new TrainingData(data);
+			try {
+				for(long r = 0; in.next(); r++) {
+					int set = (r % TrainingData.VALIDATION_EVERY == 0 ? 1 : 0);
+					int phase = phase(Utils.bitCount(in.p | in.o));
+					int mobility = mobility(in.p, in.o);
+					features(in.p, in.o, features);
+					double[] w = weights[phase];
+					if(counting) {
+						if(set == 0) {
+							double[] c = count[phase];
+							for(int f : features) {
+								c[f]++;
+							}
+							c[MOBILITY] += mobility * mobility;
+							c[BIAS]++;
+						}
+						continue;
+					}
+
+					double value = w[BIAS] + w[MOBILITY] * mobility;
+					for(int f : features) {
+						value += w[f];
+					}
+					double error = value - in.score;
+					squares[set] += error * error;
+					n[set]++;
+					if(set == 0) {
+						double[] g = gradient[phase];
+						for(int f : features) {
+							g[f] += error;
+						}
+						g[MOBILITY] += error * mobility;
+						g[BIAS] += error;
+					}
+				}
+			} finally {
+				in.close();
+			}
+			return new double[] {Math.sqrt(squares[0] / Math.max(1, n[0])),
+								 Math.sqrt(squares[1] / Math.max(1, n[1]))};
+		}
+	}
+}
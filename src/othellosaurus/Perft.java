@@ -0,0 +1,182 @@
+package othellosaurus;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the positions a fixed number of plies from a position (perft), for
+ * checking move generation and measuring its speed. A pass is a ply, and a
+ * finished game counts as one position however many plies remain.
+ *   java othellosaurus.Perft [max depth] [-threads <threads>] [-hash <megabytes>]
+ * counts from the start position to each depth up to max depth, checking
+ * the counts against START_COUNTS.
+ */
+public class Perft {
+	// published counts from the start position for each depth
+	public static final long[] START_COUNTS = {1L, 4L, 12L, 56L, 244L, 1396L,
+		8200L, 55092L, 390216L, 3005288L, 24571284L, 212258800L, 1939886636L,
+		18429641748L};
+
+	private final Board[] boards = new Board[Search.MAX_PLY]; // board reused at each ply
+
+	// optional table of counts already found, shared without locking like the
+	// transposition table: {key ^ count, count} with key the position's hash
+	// combined with the remaining depth
+	private final long[] table;
+	private final int mask;
+
+	/** Creates a new Perft without a hash table */
+	public Perft() {
+		this(0);
+	}
+
+	/** Creates a new Perft keeping counts in a table of the given megabytes */
+	public Perft(int megabytes) {
+		this(megabytes == 0 ? null
+				: new long[2 * (int)Math.min(Long.highestOneBit(((long)megabytes << 20) / 16), 1 << 26)]);
+	}
+
+	/** Creates a new Perft sharing table */
+	private Perft(long[] table) {
+		this.table = table;
+		this.mask = (table == null ? 0 : table.length / 2 - 1);
+		for(int i = 0; i < boards.length; i++) {
+			boards[i] = new Board();
+		}
+	}
+
+	/** Returns the number of positions depth plies from b */
+	public long count(Board b, int depth) {
+		return count(b, depth, 0);
+	}
+
+	/** Returns the number of positions depth plies from b at the given ply */
+	private long count(Board b, int depth, int ply) {
+		if(depth == 0) {
+			return 1;
+		}
+		Board child = boards[ply];
+		if(b.legalMoves == 0) {
+			child.set(b, Board.PASS);
+			return child.gameOver ? 1 : count(child, depth - 1, ply + 1);
+		}
+		// bulk counting: the moves are the positions one ply away
+		if(depth == 1) {
+			return Utils.bitCount(b.legalMoves);
+		}
+
+		long key = b.zobrist ^ (depth * 0x9e3779b97f4a7c15L);
+		int i = 0;
+		if(table != null) {
+			i = ((int)(key ^ (key >>> 32)) & mask) * 2;
+			long count = table[i + 1];
+			if((table[i] ^ count) == key) {
+				return count;
+			}
+		}
+
+		long count = 0;
+		for(long moves = b.legalMoves; moves != 0; moves &= moves - 1) {
+			child.set(b, Utils.bitScanForward(moves));
+			count += count(child, depth - 1, ply + 1);
+		}
+
+		if(table != null) {
+			table[i] = key ^ count;
+			table[i + 1] = count;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of positions depth plies from b, counting the
+	 * subtree of each move from b on its own thread
+	 */
+	public long parallelCount(Board b, int depth, int threads) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.invoke(new Split(b, depth));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/** Task counting the positions depth plies from b, split by b's moves */
+	private class Split extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final Board b;
+		private final int depth;
+
+		public Split(Board b, int depth) {
+			this.b = b;
+			this.depth = depth;
+		}
+
+		protected Long compute() {
+			if(depth < 2 || b.legalMoves == 0) {
+				return new Perft(table).count(b, depth);
+			}
+			List<Leaf> leaves = new ArrayList<Leaf>();
+			for(long moves = b.legalMoves; moves != 0; moves &= moves - 1) {
+				leaves.add(new Leaf(new Board(b, Utils.bitScanForward(moves)), depth - 1));
+			}
+			long count = 0;
+			for(Leaf leaf : invokeAll(leaves)) {
+				count += leaf.join();
+			}
+			return count;
+		}
+	}
+
+	/** Task counting the positions depth plies from b on one thread */
+	private class Leaf extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final Board b;
+		private final int depth;
+
+		public Leaf(Board b, int depth) {
+			this.b = b;
+			this.depth = depth;
+		}
+
+		protected Long compute() {
+			return new Perft(table).count(b, depth);
+		}
+	}
+
+	/** Counts from the start position to each depth and checks the counts */
+	public static void main(String[] args) {
+		int maxDepth = 11;
+		int threads = 1;
+		int megabytes = 0;
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-hash")) {
+				megabytes = Integer.parseInt(args[++i]);
+			} else {
+				maxDepth = Integer.parseInt(args[i]);
+			}
+		}
+
+		Perft perft = new Perft(megabytes);
+		boolean passed = true;
+		for(int depth = 1; depth <= maxDepth; depth++) {
+			long startTime = System.nanoTime();
+			long count = (threads > 1 ? perft.parallelCount(new Board(), depth, threads)
+					: perft.count(new Board(), depth));
+			long time = System.nanoTime() - startTime;
+			String check = "";
+			if(depth < START_COUNTS.length) {
+				check = (count == START_COUNTS[depth] ? "ok" : "EXPECTED " + START_COUNTS[depth]);
+				passed &= (count == START_COUNTS[depth]);
+			}
+			System.out.println(String.format("perft %2d: %14d  seconds: %8.3f  nodes/sec: %12.0f  %s",
+					depth, count, time / 1e9, 1e9 * count / time, check));
+		}
+		if(!passed) {
+			System.exit(1);
+		}
+	}
+}
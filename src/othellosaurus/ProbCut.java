@@ -0,0 +1,261 @@
+package othellosaurus;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parameters for Multi-ProbCut, the forward pruning done by Node.negaMax.
+ * The value of a search of depth d is predicted from a shallower search of
+ * shallowDepth(d) as slope * shallow value + intercept, with the error of
+ * the prediction normally distributed with deviation sigma. A node whose
+ * predicted value is more than threshold deviations above beta (or below
+ * alpha) is cut without the deep search. The parameters differ by depth and
+ * by phase of the game, since evaluations are more reliable late in the
+ * game.
+ *
+ * The parameters are fit to an evaluator by running this class:
+ *   java othellosaurus.ProbCut [options] <training data> <parameters file>
+ * Options:
+ *   -positions <count>   positions from the training data to search
+ *                        (default 2000, spread through the file)
+ *   -depth <depth>       deepest search to fit (default 10)
+ *   -weights <file>      fit the default evaluator with these weights
+ *   -patterns <file>     fit the pattern evaluator with these weights
+ *   -threads <threads>   threads searching positions (default: all cores)
+ * Each position is searched by iterative deepening without ProbCut, and the
+ * value of each iteration is paired with the value of the iteration at its
+ * shallow depth. An agent must use the evaluator its parameters were fit to.
+ *
+ * File layout: one line per phase and depth,
+ *   phase depth slope intercept sigma
+ */
+public class ProbCut {
+	public static final int MIN_DEPTH = 3; // shallowest search cut by ProbCut
+	public static final int MAX_DEPTH = 60;
+	public static final int NUM_PHASES = 6;
+	public static final int PIECES_PER_PHASE = 10;
+	public static final double DEFAULT_THRESHOLD = 1.5; // deviations from the
+														// predicted value to cut at
+	public static final int MIN_SAMPLES = 30; // pairs needed to fit a depth and phase
+	public static final int DEFAULT_POSITIONS = 2000;
+	public static final int DEFAULT_FIT_DEPTH = 10;
+	private static final int UNKNOWN = Integer.MIN_VALUE; // value of a depth not searched
+
+	// parameters by [phase][depth]; a slope of 0 means no ProbCut there
+	public final double[][] slope = new double[NUM_PHASES][MAX_DEPTH + 1];
+	public final double[][] intercept = new double[NUM_PHASES][MAX_DEPTH + 1];
+	public final double[][] sigma = new double[NUM_PHASES][MAX_DEPTH + 1];
+
+	/**
+	 * Returns the depth of the shallow search predicting a search of the
+	 * given depth: about half as deep (8 -> 4, 9 -> 5, 10 -> 4, 12 -> 6), and
+	 * odd exactly when depth is odd, because values alternate between odd
+	 * and even depths
+	 */
+	public static int shallowDepth(int depth) {
+		return 2 * (depth / 4) + (depth & 1);
+	}
+
+	/** Returns the phase of the game with the given number of pieces */
+	public static int phase(int numPieces) {
+		return Math.min(NUM_PHASES - 1, Math.max(0, numPieces - 5) / PIECES_PER_PHASE);
+	}
+
+	/** Reads parameters written by write */
+	public static ProbCut read(File file) throws IOException {
+		ProbCut pc = new ProbCut();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while((line = in.readLine()) != null) {
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				int phase = Integer.parseInt(fields[0]);
+				int depth = Integer.parseInt(fields[1]);
+				pc.slope[phase][depth] = Double.parseDouble(fields[2]);
+				pc.intercept[phase][depth] = Double.parseDouble(fields[3]);
+				pc.sigma[phase][depth] = Double.parseDouble(fields[4]);
+			}
+		} finally {
+			in.close();
+		}
+		return pc;
+	}
+
+	/** Writes the parameters of every phase and depth with a nonzero slope */
+	public void write(File file) throws IOException {
+		FileWriter out = new FileWriter(file);
+		try {
+			out.write("# phase depth slope intercept sigma\n");
+			for(int phase = 0; phase < NUM_PHASES; phase++) {
+				for(int depth = 0; depth <= MAX_DEPTH; depth++) {
+					if(slope[phase][depth] != 0) {
+						out.write(String.format("%d %d %.4f %.1f %.1f\n", phase, depth,
+								slope[phase][depth], intercept[phase][depth], sigma[phase][depth]));
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Sums for fitting the values of one depth and phase to shallow values */
+	private static class Fit {
+		public long n;
+		public double sx, sy, sxx, sxy, syy;
+
+		/** Adds a pair of shallow value x and deep value y */
+		public void add(double x, double y) {
+			n++;
+			sx += x;
+			sy += y;
+			sxx += x * x;
+			sxy += x * y;
+			syy += y * y;
+		}
+	}
+
+	/**
+	 * Searches a position by iterative deepening to maxDepth and returns the
+	 * value of each depth, stopping at the first solved value (the rest are
+	 * UNKNOWN)
+	 */
+	private static int[] values(Board b, Search search, int maxDepth) {
+		int[] values = new int[maxDepth + 1];
+		Arrays.fill(values, UNKNOWN);
+		search.transpositionTable.clear();
+		Node n = search.root(b);
+		for(search.searchDepth = 1; search.searchDepth <= maxDepth; search.searchDepth++) {
+			search.staticEvals = 0;
+			search.setDecisionPlies(false);
+			n.b.legalMoves = n.b.getMoves(n.b.mover);
+			int v = n.negaMax(-Node.WIN_MULTIPLIER * 128, Node.WIN_MULTIPLIER * 128);
+			if(Math.abs(v) >= Node.WIN_MULTIPLIER || search.staticEvals == 0) {
+				break;
+			}
+			values[search.searchDepth] = v;
+		}
+		return values;
+	}
+
+	/** Fits parameters to the data set given by the arguments */
+	public static void main(String[] args) throws Exception {
+		int numPositions = DEFAULT_POSITIONS;
+		int depth = DEFAULT_FIT_DEPTH;
+		Evaluator evaluator = new Evaluator();
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> files = new ArrayList<String>();
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-positions")) {
+				numPositions = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-depth")) {
+				depth = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-weights")) {
+				evaluator = Evaluator.read(new File(args[++i]));
+			} else if(args[i].equals("-patterns")) {
+				evaluator = PatternEvaluator.read(new File(args[++i]));
+			} else if(args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else {
+				files.add(args[i]);
+			}
+		}
+		final int maxDepth = Math.min(depth, MAX_DEPTH);
+		final Evaluator e = evaluator;
+
+		// positions spread evenly through the training data, leaving out
+		// those the endgame solver would play
+		File data = new File(files.get(0));
+		long every = Math.max(1, TrainingData.size(data) / numPositions);
+		final List<Board> positions = new ArrayList<Board>();
+		TrainingData in = new TrainingData(data);
+		try {
+			for(long i = 0; in.next(); i++) {
+				Board b = new Board(in.p, in.o, Board.BLACK);
+				if(i % every == 0 && 64 - b.numPieces > EndgameSolver.DEFAULT_EMPTIES
+						&& b.legalMoves != 0) {
+					positions.add(b);
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		final Fit[][] fits = new Fit[NUM_PHASES][maxDepth + 1];
+		for(int phase = 0; phase < NUM_PHASES; phase++) {
+			for(int d = 0; d <= maxDepth; d++) {
+				fits[phase][d] = new Fit();
+			}
+		}
+		final AtomicInteger next = new AtomicInteger();
+		final long startTime = System.nanoTime();
+		List<Thread> workers = new ArrayList<Thread>();
+		for(int t = 0; t < threads; t++) {
+			Thread worker = new Thread("probcut-" + t) {
+				public void run() {
+					Search search = new Search(0, e, new TranspositionTable(8), Long.MAX_VALUE);
+					search.canonicalPieces = Agent.DEFAULT_CANONICAL_PIECES;
+					int i;
+					while((i = next.getAndIncrement()) < positions.size()) {
+						Board b = positions.get(i);
+						int[] values = values(new Board(b), search, maxDepth);
+						int phase = phase(b.numPieces);
+						synchronized(fits) {
+							for(int d = MIN_DEPTH; d <= maxDepth; d++) {
+								if(values[d] != UNKNOWN && values[shallowDepth(d)] != UNKNOWN) {
+									fits[phase][d].add(values[shallowDepth(d)], values[d]);
+								}
+							}
+						}
+						if((i + 1) % 100 == 0) {
+							System.out.println(String.format("%d positions  %.0f seconds",
+									i + 1, (System.nanoTime() - startTime) / 1e9));
+						}
+					}
+				}
+			};
+			worker.start();
+			workers.add(worker);
+		}
+		for(Thread worker : workers) {
+			worker.join();
+		}
+
+		// least squares fit of each depth and phase
+		ProbCut pc = new ProbCut();
+		System.out.println("phase depth shallow  pairs   slope  intercept    sigma  correlation");
+		for(int phase = 0; phase < NUM_PHASES; phase++) {
+			for(int d = MIN_DEPTH; d <= maxDepth; d++) {
+				Fit f = fits[phase][d];
+				double varX = f.sxx - f.sx * f.sx / f.n;
+				double varY = f.syy - f.sy * f.sy / f.n;
+				if(f.n < MIN_SAMPLES || varX <= 0 || varY <= 0) {
+					continue;
+				}
+				double covXY = f.sxy - f.sx * f.sy / f.n;
+				double a = covXY / varX;
+				double b = (f.sy - a * f.sx) / f.n;
+				double sse = Math.max(0, varY - a * covXY);
+				pc.slope[phase][d] = a;
+				pc.intercept[phase][d] = b;
+				pc.sigma[phase][d] = Math.sqrt(sse / f.n);
+				System.out.println(String.format("%5d %5d %7d %6d %7.3f %10.1f %8.1f %12.3f",
+						phase, d, shallowDepth(d), f.n, a, b, pc.sigma[phase][d],
+						covXY / Math.sqrt(varX * varY)));
+			}
+		}
+		pc.write(new File(files.get(1)));
+		System.out.println(String.format("Searched %d positions in %.0f seconds; wrote %s",
+				positions.size(), (System.nanoTime() - startTime) / 1e9, files.get(1)));
+	}
+}
@@ -0,0 +1,126 @@
+package othellosaurus;
+
+/**
+ * State for one thread searching the game tree. Every Node in a search
+ * shares its Search, so several searches can run at once on different
+ * threads. Nothing here is shared between searches except the transposition
+ * table, which the Agent that owns it may share with its helper threads.
+ */
+public class Search {
+	public static final int MAX_PLY = 128; // more plies than any game can last
+	public static final int MAX_ORDER_PLY = 9; // max ply at which to do move-ordering
+	public static final int MAX_MOVES = 33; // most legal moves of any position
+	public static final int NO_REPLY = -2; // predictedReply if not known (PASS is a reply)
+
+	public final int id; // 0 for the main thread, otherwise a helper thread
+	public final Evaluator evaluator; // Evaluator for static evaluations
+	public final TranspositionTable transpositionTable; // stored results of
+														// previous searches
+	public EvalCache evalCache; // cache of static evaluations, or null
+	public ProbCut probCut; // parameters for forward pruning, or null
+	public double probCutThreshold = ProbCut.DEFAULT_THRESHOLD; // deviations
+								// from a predicted value at which to cut
+	public boolean probCutting; // whether a shallow ProbCut search is running
+
+	public int orderPly; // max ply at which to do move-ordering
+	public int transposePly; // max ply at which to check transposition
+							 // table for repeated position
+	public int hashPly; // max ply at which to enter nodes in
+						// transposition table
+	public int negascoutPly; // ply at which to use negascout algorithm
+	public int canonicalPieces; // max pieces at which to key the transposition
+								// table by the canonical form of a position
+
+	public volatile long stopTime; // when to stop searching
+	public byte searchDepth; // depth at which to use static evaluation
+	public long nodesSearched; // number of nodes visited this search
+	public int staticEvals; // number of static evaluations (or values from
+							// the transposition table based on them) used
+							// this search
+
+	// counts for SearchStats, over all iterations of this search
+	public long ttProbes; // transposition table lookups for cutoffs
+	public long ttHits; // lookups that found the position
+	public long ttCutoffs; // lookups whose value ended the node's search
+	public long betaCutoffs; // nodes ended by a move reaching beta
+	public long firstMoveCutoffs; // of which by the first move tried
+	public long evals; // static evaluations
+	public long researches; // searches of the root again after the value
+							// fell outside the aspiration window
+	public final SearchStats stats = new SearchStats(); // counts by iteration
+
+	public final Node[] nodes = new Node[MAX_PLY]; // node reused at each ply
+
+	// results of the deepest iteration completed by iterative deepening
+	public int completedDepth;
+	public int bestMove;
+	public int bestValue;
+	public int predictedReply = NO_REPLY; // opponent's best reply, or NO_REPLY
+
+	/** Creates a new Search */
+	public Search(int id, Evaluator evaluator,
+			TranspositionTable transpositionTable, long stopTime) {
+		this.id = id;
+		this.evaluator = evaluator;
+		this.transpositionTable = transpositionTable;
+		this.stopTime = stopTime;
+		for(int i = 0; i < MAX_PLY; i++) {
+			nodes[i] = new Node(this, (byte)i);
+		}
+	}
+
+	/** Returns the root node for a search of b */
+	public Node root(Board b) {
+		nodes[0].b = b;
+		return nodes[0];
+	}
+
+	/**
+	 * Sets when to do various search algorithms based on the current
+	 * search depth.
+	 */
+	public void setDecisionPlies(boolean negascout) {
+		orderPly = Math.min(searchDepth - 4, MAX_ORDER_PLY);
+		transposePly = Math.min(searchDepth - 3, 10);
+		hashPly = Math.max(orderPly + 1, transposePly);
+		negascoutPly = negascout ? orderPly - 1 : -1;
+	}
+
+	/**
+	 * Returns the transposition table key of b: the same for all symmetries
+	 * of the position early in the game, where symmetric positions are common
+	 */
+	public long key(Board b) {
+		return b.numPieces <= canonicalPieces ? b.canonicalKey() : b.zobrist;
+	}
+
+	/**
+	 * Returns move from b as stored under key(b): turned with b when the key
+	 * is of b's canonical form
+	 */
+	public int tableMove(Board b, int move) {
+		if(move < 0 || b.numPieces > canonicalPieces) {
+			return move;
+		}
+		return Utils.transformSquare(move, b.canonicalTransform());
+	}
+
+	/** Returns a move stored under key(b) as a move from b (see tableMove) */
+	public int boardMove(Board b, int move) {
+		if(move < 0 || b.numPieces > canonicalPieces) {
+			return move;
+		}
+		return Utils.transformSquare(move, Utils.inverseTransform[b.canonicalTransform()]);
+	}
+
+	/** Returns the static evaluation of b */
+	public int eval(Board b) {
+		evals++;
+		return evalCache == null ? evaluator.eval(b) : evalCache.eval(evaluator, b);
+	}
+
+	/** Makes this search stop as soon as possible */
+	public void stop() {
+		stopTime = 0;
+	}
+}
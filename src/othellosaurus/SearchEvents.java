@@ -0,0 +1,93 @@
+package othellosaurus;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of the engine, recorded with e.g.
+ *   java -XX:StartFlightRecording=filename=othello.jfr othellosaurus.GraphicUI
+ * and shown in JDK Mission Control under "Othellosaurus".
+ *
+ * Events are committed at most once per iteration, never per node, and
+ * when recording is off an event's begin and commit do nothing, so they can
+ * stay in place in production.
+ */
+public class SearchEvents {
+	/** An agent starts looking for a move */
+	@Name("othellosaurus.SearchStart")
+	@Label("Search Start")
+	@Category("Othellosaurus")
+	public static class Start extends Event {
+		@Label("Pieces") public int numPieces;
+		@Label("Max Depth") public int maxDepth;
+		@Label("Max Time") @Timespan(Timespan.NANOSECONDS) public long maxTime;
+		@Label("Threads") public int threads;
+		@Label("Ponder Hit") @Description("Whether the position was searched while pondering")
+		public boolean ponderHit;
+	}
+
+	/** One iteration of iterative deepening, timed from its start */
+	@Name("othellosaurus.SearchIteration")
+	@Label("Search Iteration")
+	@Category("Othellosaurus")
+	public static class Iteration extends Event {
+		@Label("Depth") public int depth;
+		@Label("Completed") @Description("False if the time limit ended the iteration")
+		public boolean completed;
+		@Label("Pondering") public boolean pondering;
+		@Label("Best Move") public String bestMove;
+		@Label("Value") public int value;
+		@Label("Nodes") public long nodes;
+		@Label("Evaluations") public long evals;
+		@Label("First Move Cutoffs") @Percentage public double firstMoveCutoffRate;
+	}
+
+	/** An agent has found its move, timed from the start of the search */
+	@Name("othellosaurus.SearchFinish")
+	@Label("Search Finish")
+	@Category("Othellosaurus")
+	public static class Finish extends Event {
+		@Label("Move") public String move;
+		@Label("Value") public int value;
+		@Label("Source") @Description("book, endgame, search or ponder")
+		public String source;
+		@Label("Depth Reached") public int depthReached;
+		@Label("Nodes") public long nodes;
+	}
+
+	/** A move was played from the opening book */
+	@Name("othellosaurus.BookHit")
+	@Label("Book Hit")
+	@Category("Othellosaurus")
+	public static class BookHit extends Event {
+		@Label("Pieces") public int numPieces;
+		@Label("Move") public String move;
+		@Label("Score") public int score;
+	}
+
+	/**
+	 * A transposition table was allocated. Tables have a fixed size, so a
+	 * new table is how an agent's table is resized.
+	 */
+	@Name("othellosaurus.TableAllocation")
+	@Label("Transposition Table Allocation")
+	@Category("Othellosaurus")
+	public static class TableAllocation extends Event {
+		@Label("Capacity") @Description("Entries the table can hold") public int capacity;
+	}
+
+	/** How full an agent's transposition table is after a search */
+	@Name("othellosaurus.TableOccupancy")
+	@Label("Transposition Table Occupancy")
+	@Category("Othellosaurus")
+	public static class TableOccupancy extends Event {
+		@Label("Capacity") public int capacity;
+		@Label("Fill Ratio") @Percentage public double fillRatio;
+		@Label("Current Ratio") @Description("Fraction of entries stored by the latest search")
+		@Percentage public double currentRatio;
+	}
+}
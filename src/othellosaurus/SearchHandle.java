@@ -0,0 +1,38 @@
+package othellosaurus;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Handle on a search started by Agent.startSearch. The search's move is its
+ * result: get() waits for it. stop() makes the agent move now with the best
+ * move found so far, while cancel() abandons the search altogether.
+ */
+public class SearchHandle extends FutureTask<Integer> {
+	private final Agent agent;
+
+	/** Creates a handle on a search of b by agent, run by run() */
+	SearchHandle(final Agent agent, final Board b) {
+		super(new Callable<Integer>() {
+			public Integer call() {
+				return agent.getMove(b);
+			}
+		});
+		this.agent = agent;
+	}
+
+	/** Stops the search as soon as possible, keeping the best move found */
+	public void stop() {
+		if(!isDone()) {
+			agent.stop();
+		}
+	}
+
+	/** Cancels the search, stopping it as soon as possible */
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean cancelled = super.cancel(false);
+		if(cancelled) {
+			agent.stop();
+		}
+		return cancelled;
+	}
+}
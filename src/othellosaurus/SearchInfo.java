@@ -0,0 +1,33 @@
+package othellosaurus;
+
+/**
+ * A result of an Agent's search, as given to SearchListeners
+ */
+public class SearchInfo {
+	public final Board board; // position searched
+	public final int depth; // depth searched (empty squares for the endgame
+							// solver, 0 for a book move)
+	public final int value; // score of the best move for the player to move
+	public final int[] pv; // best line found, starting with the best move
+	public final long nodes; // nodes searched so far
+	public final long nanos; // time since the search started
+	public final String text; // the result described for display
+	public SearchStats stats; // statistics by iteration, given with done only
+
+	/** Creates a new SearchInfo */
+	public SearchInfo(Board board, int depth, int value, int[] pv,
+			long nodes, long nanos, String text) {
+		this.board = board;
+		this.depth = depth;
+		this.value = value;
+		this.pv = pv;
+		this.nodes = nodes;
+		this.nanos = nanos;
+		this.text = text;
+	}
+
+	/** Returns the best move found */
+	public int bestMove() {
+		return pv.length > 0 ? pv[0] : Board.PASS;
+	}
+}
@@ -0,0 +1,17 @@
+package othellosaurus;
+
+/**
+ * Receives the results of an Agent's searches. Listeners are called on the
+ * agent's notifier thread, never on a search thread, so a slow listener
+ * does not slow the search down.
+ */
+public interface SearchListener {
+	/**
+	 * Called with each new result of a search: a completed iteration of
+	 * iterative deepening, or a move from the book or the endgame solver
+	 */
+	void progress(SearchInfo info);
+
+	/** Called once when a search finishes, with its move and statistics */
+	void done(SearchInfo info);
+}
@@ -0,0 +1,145 @@
+package othellosaurus;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statistics of one search for a move, broken down by iteration of
+ * iterative deepening. Counts are of the main search thread only (helper
+ * threads' nodes are in Agent.nodesSearched).
+ */
+public class SearchStats {
+	public final List<Iteration> iterations = new ArrayList<Iteration>();
+
+	// totals of the iterations recorded so far
+	private long nodes, ttProbes, ttHits, ttCutoffs, betaCutoffs, firstMoveCutoffs, evals,
+		researches;
+
+	/**
+	 * Counts of one iteration
+	 */
+	public static class Iteration {
+		public final int depth; // search depth of the iteration
+		public final boolean completed; // false if time ran out during it
+		public final int orderPly; // plies chosen by Search.setDecisionPlies
+		public final int transposePly;
+		public final int hashPly;
+		public final long nodes; // nodes visited
+		public final long ttProbes; // transposition table lookups for cutoffs
+		public final long ttHits; // lookups that found the position
+		public final long ttCutoffs; // lookups whose value ended the node's search
+		public final long betaCutoffs; // nodes ended by a move reaching beta
+		public final long firstMoveCutoffs; // of which by the first move tried
+		public final long evals; // static evaluations (leaves and move ordering)
+		public final long researches; // root searches repeated after failing
+									  // outside the aspiration window
+		public final long nanos; // time spent
+
+		/** Creates a new Iteration */
+		public Iteration(int depth, boolean completed, int orderPly, int transposePly,
+				int hashPly, long nodes, long ttProbes, long ttHits, long ttCutoffs,
+				long betaCutoffs, long firstMoveCutoffs, long evals, long researches,
+				long nanos) {
+			this.depth = depth;
+			this.completed = completed;
+			this.orderPly = orderPly;
+			this.transposePly = transposePly;
+			this.hashPly = hashPly;
+			this.nodes = nodes;
+			this.ttProbes = ttProbes;
+			this.ttHits = ttHits;
+			this.ttCutoffs = ttCutoffs;
+			this.betaCutoffs = betaCutoffs;
+			this.firstMoveCutoffs = firstMoveCutoffs;
+			this.evals = evals;
+			this.researches = researches;
+			this.nanos = nanos;
+		}
+
+		/** Returns the fraction of beta cutoffs made by the first move tried */
+		public double firstMoveCutoffRate() {
+			return betaCutoffs == 0 ? 0 : (double)firstMoveCutoffs / betaCutoffs;
+		}
+	}
+
+	/**
+	 * Records an iteration of s that took nanos, with the counts s gathered
+	 * since the last iteration recorded
+	 */
+	public void record(Search s, int depth, boolean completed, long nanos) {
+		iterations.add(new Iteration(depth, completed, s.orderPly, s.transposePly, s.hashPly,
+				s.nodesSearched - nodes, s.ttProbes - ttProbes, s.ttHits - ttHits,
+				s.ttCutoffs - ttCutoffs, s.betaCutoffs - betaCutoffs,
+				s.firstMoveCutoffs - firstMoveCutoffs, s.evals - evals,
+				s.researches - researches, nanos));
+		nodes = s.nodesSearched;
+		ttProbes = s.ttProbes;
+		ttHits = s.ttHits;
+		ttCutoffs = s.ttCutoffs;
+		betaCutoffs = s.betaCutoffs;
+		firstMoveCutoffs = s.firstMoveCutoffs;
+		evals = s.evals;
+		researches = s.researches;
+	}
+
+	/**
+	 * Adds the counts of other's iterations to those of this one's at the
+	 * same depth, e.g. to total the searches of several positions
+	 */
+	public void add(SearchStats other) {
+		for(int i = 0; i < other.iterations.size(); i++) {
+			Iteration b = other.iterations.get(i);
+			if(i == iterations.size()) {
+				iterations.add(b);
+				continue;
+			}
+			Iteration a = iterations.get(i);
+			iterations.set(i, new Iteration(a.depth, a.completed && b.completed,
+					a.orderPly, a.transposePly, a.hashPly, a.nodes + b.nodes,
+					a.ttProbes + b.ttProbes, a.ttHits + b.ttHits, a.ttCutoffs + b.ttCutoffs,
+					a.betaCutoffs + b.betaCutoffs, a.firstMoveCutoffs + b.firstMoveCutoffs,
+					a.evals + b.evals, a.researches + b.researches, a.nanos + b.nanos));
+		}
+		nodes += other.nodes;
+		ttProbes += other.ttProbes;
+		ttHits += other.ttHits;
+		ttCutoffs += other.ttCutoffs;
+		betaCutoffs += other.betaCutoffs;
+		firstMoveCutoffs += other.firstMoveCutoffs;
+		evals += other.evals;
+		researches += other.researches;
+	}
+
+	/**
+	 * Returns the effective branching factor of iteration i: its nodes
+	 * divided by the previous iteration's, or 0 for the first iteration
+	 */
+	public double branchingFactor(int i) {
+		if(i == 0 || iterations.get(i - 1).nodes == 0) {
+			return 0;
+		}
+		return (double)iterations.get(i).nodes / iterations.get(i - 1).nodes;
+	}
+
+	/** Returns the nodes visited by all iterations */
+	public long nodes() {
+		return nodes;
+	}
+
+	/** Returns a table of the iterations, one per line */
+	public String toString() {
+		StringBuilder s = new StringBuilder(String.format(
+				"%5s %8s %12s %6s %7s %7s %7s %12s %4s %10s %5s%n", "depth", "plies", "nodes",
+				"ebf", "tt hit", "tt cut", "first", "evals", "re", "ms", ""));
+		for(int i = 0; i < iterations.size(); i++) {
+			Iteration it = iterations.get(i);
+			s.append(String.format("%5d %8s %12d %6.2f %7.3f %7.3f %7.3f %12d %4d %10.1f %5s%n",
+					it.depth, it.orderPly + "/" + it.transposePly + "/" + it.hashPly,
+					it.nodes, branchingFactor(i),
+					it.ttProbes == 0 ? 0 : (double)it.ttHits / it.ttProbes,
+					it.ttProbes == 0 ? 0 : (double)it.ttCutoffs / it.ttProbes,
+					it.firstMoveCutoffRate(), it.evals, it.researches, it.nanos / 1e6,
+					it.completed ? "" : "(cut)"));
+		}
+		return s.toString();
+	}
+}
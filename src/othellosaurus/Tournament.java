@@ -0,0 +1,353 @@
+package othellosaurus;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless match between two agent configurations. Every opening is played
+ * twice, once with each configuration moving first, and games run at the
+ * same time on all cores.
+ *   java othellosaurus.Tournament [options] <config A> <config B>
+ * A configuration is a comma separated list of settings, any of which may
+ * be left out:
+ *   depth=100,time=1,negascout=false,threads=1,table=32,evalcache=512,empties=16,
+ *   aspiration=0,weights=<weights file>,patterns=<pattern weights file>,
+ *   book=<book file>,probcut=<ProbCut parameters file>,cut=1.5
+ * Options:
+ *   -openings <count or file>  random openings to play (default 50), or a
+ *                              file with one opening per line, e.g. f5d6c3
+ *   -plies <plies>             plies of random openings (default 8)
+ *   -seed <seed>               seed for random openings
+ *   -parallel <games>          games to play at once (default: all cores)
+ */
+public class Tournament {
+	public static final int DEFAULT_OPENINGS = 50;
+	public static final int DEFAULT_OPENING_PLIES = 8;
+
+	/** Runs the match given by the arguments */
+	public static void main(String[] args) throws Exception {
+		String openings = Integer.toString(DEFAULT_OPENINGS);
+		int plies = DEFAULT_OPENING_PLIES;
+		long seed = Benchmark.SEED;
+		int parallel = Runtime.getRuntime().availableProcessors();
+		List<Config> configs = new ArrayList<Config>();
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-openings")) {
+				openings = args[++i];
+			} else if(args[i].equals("-plies")) {
+				plies = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-seed")) {
+				seed = Long.parseLong(args[++i]);
+			} else if(args[i].equals("-parallel")) {
+				parallel = Integer.parseInt(args[++i]);
+			} else {
+				configs.add(new Config(args[i]));
+			}
+		}
+		while(configs.size() < 2) {
+			configs.add(new Config(""));
+		}
+
+		Board[] starts = new File(openings).exists() ? readOpenings(new File(openings))
+				: randomOpenings(Integer.parseInt(openings), plies, seed);
+		Result result = play(configs.get(0), configs.get(1), starts, parallel);
+		result.print(configs.get(0), configs.get(1));
+	}
+
+	/**
+	 * Plays every start position twice between a and b, parallel games at a
+	 * time, printing each game as it finishes
+	 */
+	public static Result play(final Config a, final Config b, Board[] starts, int parallel)
+			throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(parallel);
+		List<Future<Game>> games = new ArrayList<Future<Game>>();
+		for(int i = 0; i < starts.length; i++) {
+			for(int aColor = Board.BLACK; aColor >= Board.WHITE; aColor--) {
+				final Board start = starts[i];
+				final int color = aColor;
+				games.add(pool.submit(new Callable<Game>() {
+					public Game call() {
+						return playGame(start, a, b, color);
+					}
+				}));
+			}
+		}
+		pool.shutdown();
+
+		Result result = new Result();
+		for(int i = 0; i < games.size(); i++) {
+			Game g;
+			try {
+				g = games.get(i).get();
+			} catch(ExecutionException ex) {
+				throw new RuntimeException(ex.getCause());
+			}
+			result.add(g);
+			System.out.println(String.format("game %d/%d  opening %d  A plays %s  discs: %+d",
+					i + 1, games.size(), i / 2 + 1,
+					g.aColor == Board.BLACK ? "black" : "white", g.discs));
+		}
+		return result;
+	}
+
+	/** Plays a game from start with a playing aColor and b the other color */
+	public static Game playGame(Board start, Config a, Config b, int aColor) {
+		Agent[] agents = new Agent[2];
+		agents[aColor] = a.createAgent();
+		agents[aColor ^ 1] = b.createAgent();
+		Game game = new Game(aColor);
+		Board board = new Board(start);
+		while(!board.gameOver) {
+			if(board.legalMoves == 0) {
+				board = new Board(board, Board.PASS);
+				continue;
+			}
+			int side = (board.mover == aColor ? 0 : 1);
+			long startTime = System.nanoTime();
+			int move = agents[board.mover].getMove(new Board(board));
+			game.nanos[side] += System.nanoTime() - startTime;
+			game.nodes[side] += agents[board.mover].nodesSearched;
+			board = new Board(board, move);
+		}
+		game.discs = Utils.bitCount(board.pieces[aColor])
+				   - Utils.bitCount(board.pieces[aColor ^ 1]);
+		return game;
+	}
+
+	/**
+	 * Returns count distinct positions (with symmetric positions counted
+	 * once) reached by random play for the given number of plies
+	 */
+	public static Board[] randomOpenings(int count, int plies, long seed) {
+		Random random = new Random(seed);
+		List<Board> openings = new ArrayList<Board>();
+		HashSet<Long> seen = new HashSet<Long>();
+		while(openings.size() < count) {
+			Board b = new Board();
+			for(int i = 0; i < plies && !b.gameOver; i++) {
+				if(b.legalMoves == 0) {
+					b = new Board(b, Board.PASS);
+					continue;
+				}
+				long moves = b.legalMoves;
+				for(int j = random.nextInt(Utils.bitCount(moves)); j > 0; j--) {
+					moves &= moves - 1;
+				}
+				b = new Board(b, Utils.bitScanForward(moves));
+			}
+			if(!b.gameOver && seen.add(b.canonicalKey())) {
+				openings.add(b);
+			}
+		}
+		return openings.toArray(new Board[openings.size()]);
+	}
+
+	/**
+	 * Reads openings from a file with one opening per line, written as the
+	 * moves played from the start position (e.g. f5d6c3 or f5 d6 c3)
+	 */
+	public static Board[] readOpenings(File file) throws IOException {
+		List<Board> openings = new ArrayList<Board>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while((line = in.readLine()) != null) {
+				line = line.replaceAll("\\s", "").toLowerCase();
+				if(line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				Board b = new Board();
+				for(int i = 0; i + 1 < line.length(); i += 2) {
+					int move = Utils.parseMove(line.substring(i, i + 2));
+					if((b.legalMoves & (1L << move)) == 0) {
+						throw new IOException("Illegal move " + line.substring(i, i + 2)
+								+ " in opening " + line);
+					}
+					b = new Board(b, move);
+					if(b.legalMoves == 0 && !b.gameOver) {
+						b = new Board(b, Board.PASS);
+					}
+				}
+				openings.add(b);
+			}
+		} finally {
+			in.close();
+		}
+		return openings.toArray(new Board[openings.size()]);
+	}
+
+	/**
+	 * Settings for creating the agents of one side of a match
+	 */
+	public static class Config {
+		public final String name;
+		public int maxDepth = 100;
+		public double maxTime = 1;
+		public boolean negaScout = false;
+		public int threads = 1;
+		public int tableMegabytes = TranspositionTable.DEFAULT_MB;
+		public int evalCacheKilobytes = EvalCache.DEFAULT_KB; // 0 for no cache
+		public int endgameEmpties = EndgameSolver.DEFAULT_EMPTIES;
+		public int aspirationWindow = Agent.DEFAULT_ASPIRATION_WINDOW;
+		public ProbCut probCut;
+		public double probCutThreshold = ProbCut.DEFAULT_THRESHOLD;
+		public Evaluator evaluator = new Evaluator();
+		public OpeningBook book;
+
+		/** Creates a configuration from its settings (see Tournament) */
+		public Config(String settings) throws IOException {
+			name = settings.isEmpty() ? "default" : settings;
+			for(String setting : settings.split(",")) {
+				if(setting.isEmpty()) {
+					continue;
+				}
+				String[] kv = setting.split("=", 2);
+				String key = kv[0];
+				String value = kv.length > 1 ? kv[1] : "";
+				if(key.equals("depth")) {
+					maxDepth = Integer.parseInt(value);
+				} else if(key.equals("time")) {
+					maxTime = Double.parseDouble(value);
+				} else if(key.equals("negascout")) {
+					negaScout = Boolean.parseBoolean(value);
+				} else if(key.equals("threads")) {
+					threads = Integer.parseInt(value);
+				} else if(key.equals("table")) {
+					tableMegabytes = Integer.parseInt(value);
+				} else if(key.equals("evalcache")) {
+					evalCacheKilobytes = Integer.parseInt(value);
+				} else if(key.equals("empties")) {
+					endgameEmpties = Integer.parseInt(value);
+				} else if(key.equals("aspiration")) {
+					aspirationWindow = Integer.parseInt(value);
+				} else if(key.equals("weights")) {
+					evaluator = Evaluator.read(new File(value));
+				} else if(key.equals("patterns")) {
+					evaluator = PatternEvaluator.read(new File(value));
+				} else if(key.equals("probcut")) {
+					probCut = ProbCut.read(new File(value));
+				} else if(key.equals("cut")) {
+					probCutThreshold = Double.parseDouble(value);
+				} else if(key.equals("book")) {
+					book = new OpeningBook(new File(value));
+				} else {
+					throw new IllegalArgumentException("Unknown setting: " + setting);
+				}
+			}
+		}
+
+		/** Returns a new agent with these settings */
+		public Agent createAgent() {
+			Agent a = new Agent(evaluator, negaScout, maxDepth, maxTime, threads);
+			if(tableMegabytes != TranspositionTable.DEFAULT_MB) {
+				a.transpositionTable = new TranspositionTable(tableMegabytes);
+			}
+			if(evalCacheKilobytes != EvalCache.DEFAULT_KB) {
+				a.evalCache = (evalCacheKilobytes == 0 ? null : new EvalCache(evalCacheKilobytes));
+			}
+			a.endgameEmpties = endgameEmpties;
+			a.aspirationWindow = aspirationWindow;
+			a.probCut = probCut;
+			a.probCutThreshold = probCutThreshold;
+			a.book = book;
+			return a;
+		}
+	}
+
+	/**
+	 * Outcome of one game, from the point of view of the first configuration
+	 * (side 0; side 1 is the second configuration)
+	 */
+	public static class Game {
+		public final int aColor; // color played by the first configuration
+		public int discs; // final disc difference for the first configuration
+		public final long[] nodes = new long[2]; // nodes searched by each side
+		public final long[] nanos = new long[2]; // time spent searching by each side
+
+		/** Creates a new game */
+		public Game(int aColor) {
+			this.aColor = aColor;
+		}
+	}
+
+	/**
+	 * Totals of a match, from the point of view of the first configuration
+	 */
+	public static class Result {
+		public int wins, draws, losses;
+		public long discs; // total disc difference
+		public final long[] nodes = new long[2];
+		public final long[] nanos = new long[2];
+
+		/** Adds the outcome of g */
+		public void add(Game g) {
+			if(g.discs > 0) {
+				wins++;
+			} else if(g.discs == 0) {
+				draws++;
+			} else {
+				losses++;
+			}
+			discs += g.discs;
+			for(int side = 0; side < 2; side++) {
+				nodes[side] += g.nodes[side];
+				nanos[side] += g.nanos[side];
+			}
+		}
+
+		/** Returns the number of games played */
+		public int games() {
+			return wins + draws + losses;
+		}
+
+		/** Returns the average score per game (1 for a win, 1/2 for a draw) */
+		public double score() {
+			return (wins + 0.5 * draws) / games();
+		}
+
+		/** Returns the Elo difference with the given average score */
+		public static double elo(double score) {
+			score = Math.max(1e-6, Math.min(1 - 1e-6, score));
+			return -400 * Math.log10(1 / score - 1);
+		}
+
+		/**
+		 * Returns half the width of the 95% confidence interval of the average
+		 * score per game
+		 */
+		public double scoreError() {
+			double s = score();
+			double variance = (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s)
+					+ losses * s * s) / games();
+			return 1.96 * Math.sqrt(variance / games());
+		}
+
+		/** Prints the results of a match between a and b */
+		public void print(Config a, Config b) {
+			double s = score();
+			double error = scoreError();
+			System.out.println();
+			System.out.println("A: " + a.name);
+			System.out.println("B: " + b.name);
+			System.out.println(String.format("A wins: %d  draws: %d  losses: %d  score: %.3f",
+					wins, draws, losses, s));
+			System.out.println(String.format("disc difference per game: %+.2f",
+					(double)discs / games()));
+			System.out.println(String.format("Elo: %+.1f  95%% interval: [%+.1f, %+.1f]",
+					elo(s), elo(s - error), elo(s + error)));
+			System.out.println(String.format("nodes/sec  A: %.0f  B: %.0f",
+					1e9 * nodes[0] / nanos[0], 1e9 * nodes[1] / nanos[1]));
+		}
+	}
+}
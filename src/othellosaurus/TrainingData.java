@@ -0,0 +1,159 @@
+package othellosaurus;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Labelled positions for fitting evaluation weights, read one at a time so
+ * a data set of any size can be streamed from disk.
+ *
+ * File layout (big-endian), one fixed size record per position:
+ *   mover's pieces (8 bytes), opponent's pieces (8 bytes),
+ *   final disc difference for the mover (2 bytes)
+ */
+public class TrainingData {
+	public static final int RECORD_BYTES = 18;
+	public static final int EXACT_EMPTIES = 12; // empty squares at which
+												// games are finished perfectly
+	public static final int VALIDATION_EVERY = 10; // records per record that
+												   // fitters keep out of the fit
+
+	private final DataInputStream in;
+
+	// the current record
+	public long p; // pieces of the player to move
+	public long o; // pieces of the other player
+	public int score; // final disc difference for the player to move
+
+	/** Opens the data set in the given file */
+	public TrainingData(File file) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+	}
+
+	/** Reads the next record, returning false at the end of the file */
+	public boolean next() throws IOException {
+		try {
+			p = in.readLong();
+			o = in.readLong();
+			score = in.readShort();
+			return true;
+		} catch(EOFException ex) {
+			return false;
+		}
+	}
+
+	/** Closes the file */
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/** Returns the number of records in the given file */
+	public static long size(File file) {
+		return file.length() / RECORD_BYTES;
+	}
+
+	/**
+	 * Writes positions from games of an agent playing itself. Each game
+	 * starts with a random number of random moves so the games differ, and
+	 * is finished with perfect play from EXACT_EMPTIES empty squares. Every
+	 * position from the end of the random moves on is labelled with the
+	 * final score of the game: the solved score, or the disc difference of
+	 * the final board for games over before the solver is reached (e.g. a
+	 * wipeout).
+	 *   java othellosaurus.TrainingData <file> [games] [depth] [seed]
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args[0]);
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : Benchmark.SEED;
+
+		Random random = new Random(seed);
+		Agent agent = new Agent(new Evaluator(), false, depth, 1e6);
+		agent.endgameEmpties = 0;
+		EndgameSolver solver = new EndgameSolver();
+		DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		long records = 0;
+		int solvedGames = 0; // games labelled by the solver
+		int terminalGames = 0; // games labelled by their final board
+		long startTime = System.nanoTime();
+		try {
+			for(int game = 0; game < games; game++) {
+				// random opening
+				Board b = new Board();
+				for(int i = 10 + random.nextInt(20); i > 0 && !b.gameOver; i--) {
+					b = randomMove(b, random);
+				}
+
+				// the agent plays itself, then the game is finished perfectly
+				ArrayList<Board> positions = new ArrayList<Board>();
+				int finalScore = 0; // for the player to move in the last position
+				boolean solved = false; // whether finalScore came from the solver
+				while(!b.gameOver) {
+					if(b.legalMoves == 0) {
+						b = new Board(b, Board.PASS);
+						continue;
+					}
+					positions.add(b);
+					if(64 - b.numPieces <= EXACT_EMPTIES) {
+						solver.solve(b, Long.MAX_VALUE);
+						finalScore = solver.bestValue;
+						solved = true;
+						b = new Board(b, solver.bestMove);
+					} else {
+						b = new Board(b, agent.getMove(new Board(b)));
+					}
+				}
+				if(positions.isEmpty()) {
+					continue;
+				}
+
+				// label positions by the score of the last solved position, or
+				// by the final board if the game ended before the solver
+				Board last = positions.get(positions.size() - 1);
+				if(solved) {
+					solvedGames++;
+				} else {
+					finalScore = Utils.bitCount(b.pieces[last.mover])
+							- Utils.bitCount(b.pieces[last.opponent]);
+					terminalGames++;
+				}
+				for(Board position : positions) {
+					out.writeLong(position.pieces[position.mover]);
+					out.writeLong(position.pieces[position.opponent]);
+					out.writeShort(position.mover == last.mover ? finalScore : -finalScore);
+					records++;
+				}
+				if((game + 1) % 100 == 0) {
+					System.out.println(String.format("%d games  %d positions  %.0f seconds",
+							game + 1, records, (System.nanoTime() - startTime) / 1e9));
+				}
+			}
+		} finally {
+			out.close();
+		}
+		System.out.println("Wrote " + records + " positions to " + file + " (" + solvedGames
+				+ " games solved, " + terminalGames + " over before the solver)");
+	}
+
+	/** Returns the board after a random legal move (or a pass) from b */
+	private static Board randomMove(Board b, Random random) {
+		if(b.legalMoves == 0) {
+			return new Board(b, Board.PASS);
+		}
+		long moves = b.legalMoves;
+		for(int j = random.nextInt(Utils.bitCount(moves)); j > 0; j--) {
+			moves &= moves - 1;
+		}
+		return new Board(b, Utils.bitScanForward(moves));
+	}
+}
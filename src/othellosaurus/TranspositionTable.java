@@ -0,0 +1,186 @@
+package othellosaurus;
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table.
+ * Entries are packed into a single long[] so storing and probing never
+ * allocates. The table is split into buckets of two entries: the first entry
+ * is depth-preferred (only replaced by a search at least as deep or by any
+ * search once the entry is from an older generation) and the second is always
+ * replaced. Each entry keeps its full key, which is checked on every probe.
+ *
+ * The table is kept between moves: each search starts a new generation (see
+ * newSearch), so results of earlier searches are reused until newer results
+ * push them out.
+ *
+ * The table can be shared by threads without locking: an entry's key is
+ * stored XORed with its data, so an entry torn by two threads writing at once
+ * fails the key check instead of returning another position's data.
+ *
+ * Layout of a bucket: {key0 ^ data0, data0, key1 ^ data1, data1}
+ * Layout of a data word: bits 0-31 value, bits 32-39 type + 2,
+ *                        bits 40-47 depth, bits 48-55 generation,
+ *                        bits 56-63 best move + 1
+ */
+public class TranspositionTable {
+	public static final long NONE = 0; // returned by probe when there is no entry
+	public static final int DEFAULT_MB = 32; // default memory budget
+	public static final int SOLVED = 255; // depth of entries whose value is
+										  // exact however deep the search
+	public static final int NO_MOVE = -1; // move of entries without a best move
+
+	private static final int LONGS_PER_BUCKET = 4;
+	private static final int BYTES_PER_BUCKET = 8 * LONGS_PER_BUCKET;
+	private static final long GENERATION_MASK = 255L << 48;
+	private static final int SAMPLE_BUCKETS = 4096; // buckets looked at to
+													// measure occupancy
+
+	private final long[] table;
+	private final int bucketMask;
+	private long generation; // generation of new entries, shifted into place
+
+	/** Creates a new table using at most the given number of megabytes */
+	public TranspositionTable(int megabytes) {
+		long budget = Math.max(1, ((long)megabytes << 20) / BYTES_PER_BUCKET);
+		int buckets = (int)Math.min(Long.highestOneBit(budget), 1 << 26);
+		table = new long[buckets * LONGS_PER_BUCKET];
+		bucketMask = buckets - 1;
+
+		SearchEvents.TableAllocation event = new SearchEvents.TableAllocation();
+		event.capacity = capacity();
+		event.commit();
+	}
+
+	/** Returns the data word stored for the given key or NONE */
+	public long probe(long key) {
+		int i = index(key);
+		long data = table[i + 1];
+		if((table[i] ^ data) == key) {
+			return data;
+		}
+		data = table[i + 3];
+		if((table[i + 2] ^ data) == key) {
+			return data;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Stores the given value, type, depth (plies searched below the
+	 * position) and best move (or NO_MOVE) under the given key. An entry
+	 * for the key without a best move keeps the move stored before.
+	 */
+	public void store(long key, int v, byte type, int depth, int move) {
+		int i = index(key);
+		long oldKey = table[i];
+		long oldData = table[i + 1];
+		if(move == NO_MOVE) {
+			if((oldKey ^ oldData) == key) {
+				move = move(oldData);
+			} else if((table[i + 2] ^ table[i + 3]) == key) {
+				move = move(table[i + 3]);
+			}
+		}
+		long data = pack(v, type, depth, move) | generation;
+		if((oldKey ^ oldData) == key || depth >= depth(oldData)
+				|| (oldData & GENERATION_MASK) != generation) {
+			// depth-preferred slot: demote the entry it held to the
+			// always-replace slot
+			if((oldKey ^ oldData) != key && oldData != NONE) {
+				table[i + 2] = oldKey;
+				table[i + 3] = oldData;
+			}
+			table[i] = key ^ data;
+			table[i + 1] = data;
+		} else {
+			table[i + 2] = key ^ data;
+			table[i + 3] = data;
+		}
+	}
+
+	/**
+	 * Starts a new generation: entries stored before now may be replaced by
+	 * shallower results
+	 */
+	public void newSearch() {
+		generation = (generation + (1L << 48)) & GENERATION_MASK;
+	}
+
+	/** Removes all entries */
+	public void clear() {
+		Arrays.fill(table, 0);
+	}
+
+	/** Returns the number of entries this table can hold */
+	public int capacity() {
+		return table.length / 2;
+	}
+
+	/**
+	 * Returns the fraction of entries in use, measured on a sample of
+	 * buckets (keys are spread evenly, so any buckets will do)
+	 */
+	public double fillRatio() {
+		return occupancy(false);
+	}
+
+	/**
+	 * Returns the fraction of entries stored since the last newSearch,
+	 * measured on a sample of buckets
+	 */
+	public double currentRatio() {
+		return occupancy(true);
+	}
+
+	/** Returns the fraction of sampled entries in use (and current if current) */
+	private double occupancy(boolean current) {
+		int end = Math.min(table.length, SAMPLE_BUCKETS * LONGS_PER_BUCKET);
+		int used = 0;
+		for(int i = 1; i < end; i += 2) {
+			long data = table[i];
+			if(data != NONE && (!current || (data & GENERATION_MASK) == generation)) {
+				used++;
+			}
+		}
+		return used / (end / 2.0);
+	}
+
+	/** Returns the index of the bucket for the given key */
+	private int index(long key) {
+		return ((int)(key ^ (key >>> 32)) & bucketMask) * LONGS_PER_BUCKET;
+	}
+
+	/** Packs an entry's fields into a data word */
+	public static long pack(int v, byte type, int depth, int move) {
+		return (v & 0xffffffffL) | ((long)(type + 2) << 32) | ((long)depth << 40)
+				| ((long)(move + 1) << 56);
+	}
+
+	/** Returns the value of the given data word */
+	public static int value(long data) {
+		return (int)data;
+	}
+
+	/** Returns the entry type (see final variables in Node) of the given data word */
+	public static byte type(long data) {
+		return (byte)(((data >>> 32) & 255) - 2);
+	}
+
+	/**
+	 * Returns the depth of search (plies below the position) which gave the
+	 * given data word's value
+	 */
+	public static int depth(long data) {
+		return (int)((data >>> 40) & 255);
+	}
+
+	/** Returns the generation of search which stored the given data word */
+	public static int generation(long data) {
+		return (int)((data >>> 48) & 255);
+	}
+
+	/** Returns the best move of the given data word, or NO_MOVE */
+	public static int move(long data) {
+		return (int)(data >>> 56) - 1;
+	}
+}
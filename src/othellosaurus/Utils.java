@@ -1,179 +1,361 @@
-package othellosaurus;
-
-/**
- * Class for bitboard utilities
- * Also stores look up tables for fast computation
- */
-public class Utils {
-	// Whether pre-computations are done
-	public static boolean precompuationsDone = false;
-
-	// The amount of bitshifting necessary to move one square in the
-	// given direction (up, right, up-right, up-left)
-	public static final int[] shift = {1, 8, 9, 7};
-	// gives the squares that can be shifted in the given direction and
-	// orientation while staying on the board
-	public static final long[][] shiftable =
-		{{0xfefefefefefefefeL, 0x7f7f7f7f7f7f7f7fL},
-		 {0xffffffffffffff00L, 0x00ffffffffffffffL},
-		 {0xfefefefefefefe00L, 0x007f7f7f7f7f7f7fL},
-		 {0x7f7f7f7f7f7f7f00L, 0x00fefefefefefefeL}};
-	public static final long[][] edges =
-		{{0x0101010101010101L, 0x8080808080808080L},
-		 {0x00000000000000ffL, 0xff00000000000000L},
-		 {0x01010101010101ffL, 0xff80808080808080L},
-		 {0x80808080808080ffL, 0xff01010101010101L}};
-	public static long[] frontierContributers = new long[4];
-	// some other useful bitboards
-	public static long corners = 0x8100000000000081L;
-	public static long center = 0x00003c3c3c3c0000L;
-
-	// stores the number of bits in the given 16-bit number
-	public static final int[] bitCount = new int[65536];
-	// stores a randomly generated bit string to be XORed with a board's hash
-	// code for a piece at the given index and of the given color
-	public static final int[][] hashChange = new int[64][2];
-	// stores the bit string to be XORed with the board's hash code given the
-	// white pieces, black pieces, and number of the given row
-	public static final int[][][] rowHashChange = new int[256][256][8];
-	// generalized the 4x4 SQUARE_VALUES in Evaluator to the whole board
-	public static final int[][] fullSquareScore = new int[8][8];
-	// stores the piece placement value for the given set of
-	// white pieces, black pieces, and number of the given row
-	public static final int[][][] rowScore = new int[256][256][8];
-	// stores mobility score for given number of white and black moves;
-	public static final int[][] mobilityScore = new int[64][64];
-
-	/** Precomputes values for later look up */
-	public static void precompute() {
-		for(int i = 0; i < 4; i++) {
-			frontierContributers[i] = ~(edges[i][0] | edges[i][1]);
-		}
-
-		// bitcount setup
-		for(int i = 0; i < 65536; i++) {
-			int n = i;
-			int count = 0;
-			while (n != 0) {
-				count++;
-				n &= (n - 1);
-			}
-			bitCount[i] = count;
-		}
-
-		// hash change setup
-		for(int i = 0; i < 64; i++) {
-			for(int j = 0; j < 2; j++) {
-				for(int k = 0; k < 31; k++) {
-					if(Math.random() < 0.5) {
-						hashChange[i][j] |= (1 << k);
-					}
-				}
-			}
-		}
-
-		// piece placement value setup
-		for(int x = 0; x < 4; x++) {
-			for(int y = 0; y < 4; y++) {
-				fullSquareScore[x][y] = Evaluator.SQUARE_SCORE[x][y];
-				fullSquareScore[7 - x][y] = Evaluator.SQUARE_SCORE[x][y];
-				fullSquareScore[x][7 - y] = Evaluator.SQUARE_SCORE[x][y];
-				fullSquareScore[7- x][7 - y] = Evaluator.SQUARE_SCORE[x][y];
-			}
-		}
-
-		// precompute hashChange and score for an arbitrary row of pieces
-		// iterate through all possible configurations of white and black pieces
-		for(int white = 0; white < 256; white++) {
-			for(int black = 0; black < 256; black++) {
-				if((white & black) != 0) {
-					continue;
-				}
-				// iterate through all rows
-				for(int y = 0; y < 8; y++) {
-					int score = 0;
-					// iterate through all squares in the current row
-					for(int x = 0; x < 8; x++) {
-						int index = getIndex(x, y);
-						if((white & (1 << x)) != 0) {
-							rowHashChange[white][black][y] ^= hashChange[index][Board.WHITE];
-							score += fullSquareScore[x][y];
-						} else if((black & (1 << x)) != 0) {
-							rowHashChange[white][black][y] ^= hashChange[index][Board.BLACK];
-							score -= fullSquareScore[x][y];
-						}
-					}
-					rowScore[white][black][y] = score;
-				}
-			}
-		}
-
-		// precompute mobility scores
-		for(int i = 0; i < 64; i++) {
-			for(int j = 0; j < 64; j++) {
-				mobilityScore[i][j] =
-					(int)Math.sqrt(Evaluator.MOBILITY_FACTOR * i) -
-					(int)Math.sqrt(Evaluator.MOBILITY_FACTOR * j);
-			}
-		}
-
-		precompuationsDone = true;
-	}
-
-	/** Prints the given bitboard (for debugging purposes) */
-	public static void printBitboard(long BB) {
-	    for(int y = 7; y >= 0; y--) {
-	    	for(int x = 0; x <= 7; x++) {
-	    		System.out.print((1 & (BB >> getIndex(x, y))) + " ");
-	    	}
-	    	System.out.println();
-	    }
-	    System.out.println();
-	}
-
-	/** Returns the index (0 - 63) corresponding to the square at (x, y) */
-	public static int getIndex(int x, int y) {
-		return x + 8*y;
-	}
-
-	/**
-	 * Returns the notation for the square at index.
-	 * Columns are labeled a-h from the left column to the right one
-	 * Rows are labeled 1-8 from the top to the bottom.
-	 */
-	public static String getMoveNotation(int move) {
-		return move == -1 ? "pass" : (char)('a' + move % 8)  + "" + (8 - move / 8);
-	}
-
-	/** Returns the number of ones in the given bit string */
-	public static int bitCount(long b) {
-		return bitCount[(int)(b & 65535)]
-		     + bitCount[(int)((b >> 16) & 65535)]
-		     + bitCount[(int)((b >> 32) & 65535)]
-		     + bitCount[(int)((b >> 48) & 65535)];
-	}
-
-	/**
-	 * Fast bitscan method I found online. Returns the index of the first bit
-	 * in the given bitString
-	 *
-     * @author Matt Taylor
-     * @return index 0..63
-     * @param bb a 64-bit word to bitscan, should not be zero
-     */
-	private static final int[] foldedTable = {
-    	63,30, 3,32,59,14,11,33,
-    	60,24,50, 9,55,19,21,34,
-    	61,29, 2,53,51,23,41,18,
-    	56,28, 1,43,46,27, 0,35,
-    	62,31,58, 4, 5,49,54, 6,
-    	15,52,12,40, 7,42,45,16,
-    	25,57,48,13,10,39, 8,44,
-    	20,47,38,22,17,37,36,26,
-    };
-	public static int bitScanForward(long b) {
-    	b ^= (b - 1);
-        int folded = ((int)b) ^ ((int)(b >>> 32));
-        return foldedTable[(folded * 0x78291ACF) >>> 26];
-    }
-}
+package othellosaurus;
+import java.util.Random;
+
+/**
+ * Class for bitboard utilities
+ * Also stores look up tables for fast computation
+ */
+public class Utils {
+	// The amount of bitshifting necessary to move one square in the
+	// given direction (up, right, up-right, up-left)
+	public static final int[] shift = {1, 8, 9, 7};
+	// gives the squares that can be shifted in the given direction and
+	// orientation while staying on the board
+	public static final long[][] shiftable =
+		{{0xfefefefefefefefeL, 0x7f7f7f7f7f7f7f7fL},
+		 {0xffffffffffffff00L, 0x00ffffffffffffffL},
+		 {0xfefefefefefefe00L, 0x007f7f7f7f7f7f7fL},
+		 {0x7f7f7f7f7f7f7f00L, 0x00fefefefefefefeL}};
+	public static final long[][] edges =
+		{{0x0101010101010101L, 0x8080808080808080L},
+		 {0x00000000000000ffL, 0xff00000000000000L},
+		 {0x01010101010101ffL, 0xff80808080808080L},
+		 {0x80808080808080ffL, 0xff01010101010101L}};
+	public static final long[] frontierContributers = new long[4];
+	// some other useful bitboards
+	public static final long corners = 0x8100000000000081L;
+	public static final long center = 0x00003c3c3c3c0000L;
+
+	// stores the number of bits in the given 16-bit number
+	public static final int[] bitCount = new int[65536];
+	// seed for the hash bit strings, fixed so hash codes are the same every run
+	public static final long HASH_SEED = 0x4f7468656c6c6fL;
+	// stores a randomly generated bit string to be XORed with a board's hash
+	// code for a piece at the given index and of the given color
+	public static final long[][] hashChange = new long[64][2];
+	// bit string XORed with a board's hash code when black is to move
+	public static final long moverHashChange;
+	// stores the bit string to be XORed with the board's hash code when the
+	// given pieces in the given row are flipped
+	public static final long[][] flipHashChange = new long[256][8];
+	// stores the bit string to be XORed with the board's hash code for the
+	// given color, row and pieces in that row
+	public static final long[][][] rowHashChange = new long[2][8][256];
+
+	// symmetry t of the board applies the transpose if bit 2 is set, then
+	// the horizontal mirror if bit 0 is set, then the vertical flip if bit 1
+	// is set (see transform). inverseTransform[t] undoes symmetry t.
+	public static final int NUM_TRANSFORMS = 8;
+	public static final int[] inverseTransform = new int[NUM_TRANSFORMS];
+	// generalized the 4x4 SQUARE_VALUES in Evaluator to the whole board
+	public static final int[][] fullSquareScore = new int[8][8];
+	// stores the piece placement value for the given set of
+	// white pieces, black pieces, and number of the given row
+	public static final int[][][] rowScore = new int[256][256][8];
+	// stores mobility score for given number of white and black moves;
+	public static final int[][] mobilityScore = new int[64][64];
+	// stores the base 3 number whose digits are the given bits, so a line
+	// of squares is numbered ternary[p] + 2 * ternary[o] by its pieces
+	public static final int[] ternary = new int[1024];
+	// stores the squares of a line of 8 whose pieces can never be flipped
+	// by moves on the line, numbered by its pieces (see ternary)
+	public static final byte[] edgeStability = new byte[6561];
+	// stores the bitboard of the first column holding the given 8 bits
+	public static final long[] firstColumn = new long[256];
+
+	// look up tables are filled in once, when this class is loaded, so they
+	// are never written while a search is reading them
+	static {
+		// hash bit strings, drawn in this order so hash codes stay the same
+		Random random = new Random(HASH_SEED);
+		for(int i = 0; i < 64; i++) {
+			for(int j = 0; j < 2; j++) {
+				hashChange[i][j] = random.nextLong();
+			}
+		}
+		moverHashChange = random.nextLong();
+
+		precompute();
+	}
+
+	/** Precomputes values for later look up */
+	private static void precompute() {
+		for(int i = 0; i < 4; i++) {
+			frontierContributers[i] = ~(edges[i][0] | edges[i][1]);
+		}
+
+		// bitcount setup
+		for(int i = 0; i < 65536; i++) {
+			int n = i;
+			int count = 0;
+			while (n != 0) {
+				count++;
+				n &= (n - 1);
+			}
+			bitCount[i] = count;
+		}
+
+		// hash change setup, from the bit strings drawn in the static block
+		for(int pieces = 0; pieces < 256; pieces++) {
+			for(int y = 0; y < 8; y++) {
+				for(int x = 0; x < 8; x++) {
+					if((pieces & (1 << x)) != 0) {
+						int index = getIndex(x, y);
+						rowHashChange[Board.WHITE][y][pieces] ^= hashChange[index][Board.WHITE];
+						rowHashChange[Board.BLACK][y][pieces] ^= hashChange[index][Board.BLACK];
+					}
+				}
+			}
+		}
+		for(int flips = 0; flips < 256; flips++) {
+			for(int y = 0; y < 8; y++) {
+				for(int x = 0; x < 8; x++) {
+					if((flips & (1 << x)) != 0) {
+						int index = getIndex(x, y);
+						flipHashChange[flips][y] ^= hashChange[index][Board.WHITE]
+						                          ^ hashChange[index][Board.BLACK];
+					}
+				}
+			}
+		}
+
+		// symmetry setup
+		for(int t = 0; t < NUM_TRANSFORMS; t++) {
+			for(int u = 0; u < NUM_TRANSFORMS; u++) {
+				if(transformSquare(transformSquare(1, t), u) == 1
+						&& transformSquare(transformSquare(8, t), u) == 8) {
+					inverseTransform[t] = u;
+				}
+			}
+		}
+
+		// piece placement value setup
+		for(int x = 0; x < 4; x++) {
+			for(int y = 0; y < 4; y++) {
+				fullSquareScore[x][y] = Evaluator.SQUARE_SCORE[x][y];
+				fullSquareScore[7 - x][y] = Evaluator.SQUARE_SCORE[x][y];
+				fullSquareScore[x][7 - y] = Evaluator.SQUARE_SCORE[x][y];
+				fullSquareScore[7- x][7 - y] = Evaluator.SQUARE_SCORE[x][y];
+			}
+		}
+
+		// precompute score for an arbitrary row of pieces
+		// iterate through all possible configurations of white and black pieces
+		for(int white = 0; white < 256; white++) {
+			for(int black = 0; black < 256; black++) {
+				if((white & black) != 0) {
+					continue;
+				}
+				// iterate through all rows
+				for(int y = 0; y < 8; y++) {
+					int score = 0;
+					// iterate through all squares in the current row
+					for(int x = 0; x < 8; x++) {
+						if((white & (1 << x)) != 0) {
+							score += fullSquareScore[x][y];
+						} else if((black & (1 << x)) != 0) {
+							score -= fullSquareScore[x][y];
+						}
+					}
+					rowScore[white][black][y] = score;
+				}
+			}
+		}
+
+		// precompute mobility scores
+		for(int i = 0; i < 64; i++) {
+			for(int j = 0; j < 64; j++) {
+				mobilityScore[i][j] =
+					(int)Math.sqrt(Evaluator.MOBILITY_FACTOR * i) -
+					(int)Math.sqrt(Evaluator.MOBILITY_FACTOR * j);
+			}
+		}
+
+		for(int bits = 0; bits < ternary.length; bits++) {
+			for(int i = 0, digit = 1; i < 10; i++, digit *= 3) {
+				if((bits & (1 << i)) != 0) {
+					ternary[bits] += digit;
+				}
+			}
+		}
+		for(int bits = 0; bits < 256; bits++) {
+			for(int y = 0; y < 8; y++) {
+				if((bits & (1 << y)) != 0) {
+					firstColumn[bits] |= 1L << getIndex(0, y);
+				}
+			}
+		}
+
+		// edge stability setup: a piece is stable if no move by either player
+		// on an empty square of the line flips it and it stays stable after
+		// every such move. Lines with more pieces are done first, so the
+		// lines after each move are already known.
+		for(int filled = 8; filled >= 0; filled--) {
+			for(int p = 0; p < 256; p++) {
+				for(int o = 0; o < 256; o++) {
+					if((p & o) == 0 && bitCount[p | o] == filled) {
+						edgeStability[ternary[p] + 2 * ternary[o]] = (byte)lineStability(p, o);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the pieces of a line of 8 with pieces p and o that no sequence
+	 * of moves on the line can flip (see edgeStability)
+	 */
+	private static int lineStability(int p, int o) {
+		int stable = p | o;
+		for(int x = 0; x < 8; x++) {
+			if(((p | o) & (1 << x)) != 0) {
+				continue;
+			}
+			// either player may move on the square, flipping what it
+			// brackets on the line (or nothing: the move may flip pieces off
+			// the line instead)
+			int flips = lineFlips(p, o, x);
+			stable &= edgeStability[ternary[p | flips | (1 << x)] + 2 * ternary[o & ~flips]] & ~flips;
+			flips = lineFlips(o, p, x);
+			stable &= edgeStability[ternary[p & ~flips] + 2 * ternary[o | flips | (1 << x)]] & ~flips;
+		}
+		return stable;
+	}
+
+	/** Returns the pieces of o flipped when the owner of p plays x on a line of 8 */
+	private static int lineFlips(int p, int o, int x) {
+		int flips = 0;
+		for(int dir = -1; dir <= 1; dir += 2) {
+			int run = 0;
+			int i = x + dir;
+			while(i >= 0 && i < 8 && (o & (1 << i)) != 0) {
+				run |= 1 << i;
+				i += dir;
+			}
+			if(i >= 0 && i < 8 && (p & (1 << i)) != 0) {
+				flips |= run;
+			}
+		}
+		return flips;
+	}
+
+	/** Returns the zobrist hash code of the given position */
+	public static long hash(long white, long black, int mover) {
+		long hash = (mover == Board.BLACK ? moverHashChange : 0);
+		// Use lookup table to compute the hash code one row at at time
+		for(int y = 0; y < 8; y++) {
+			hash ^= rowHashChange[Board.WHITE][y][(int)(white & 255)]
+			      ^ rowHashChange[Board.BLACK][y][(int)(black & 255)];
+			white >>>= 8;
+			black >>>= 8;
+		}
+		return hash;
+	}
+
+	/** Returns the bitboard b under symmetry t (see inverseTransform) */
+	public static long transform(long b, int t) {
+		if((t & 4) != 0) {
+			// transpose: swap the squares (x, y) and (y, x)
+			long k = 0x0f0f0f0f00000000L & (b ^ (b << 28));
+			b ^= k ^ (k >>> 28);
+			k = 0x3333000033330000L & (b ^ (b << 14));
+			b ^= k ^ (k >>> 14);
+			k = 0x5500550055005500L & (b ^ (b << 7));
+			b ^= k ^ (k >>> 7);
+		}
+		if((t & 1) != 0) {
+			// mirror: reverse the bits in each row
+			b = ((b >>> 1) & 0x5555555555555555L) | ((b & 0x5555555555555555L) << 1);
+			b = ((b >>> 2) & 0x3333333333333333L) | ((b & 0x3333333333333333L) << 2);
+			b = ((b >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((b & 0x0f0f0f0f0f0f0f0fL) << 4);
+		}
+		if((t & 2) != 0) {
+			// flip: reverse the order of the rows
+			b = Long.reverseBytes(b);
+		}
+		return b;
+	}
+
+	/** Returns the index of square under symmetry t (see inverseTransform) */
+	public static int transformSquare(int square, int t) {
+		int x = square % 8;
+		int y = square / 8;
+		if((t & 4) != 0) {
+			int tmp = x;
+			x = y;
+			y = tmp;
+		}
+		if((t & 1) != 0) {
+			x = 7 - x;
+		}
+		if((t & 2) != 0) {
+			y = 7 - y;
+		}
+		return getIndex(x, y);
+	}
+
+	/** Prints the given bitboard (for debugging purposes) */
+	public static void printBitboard(long BB) {
+	    for(int y = 7; y >= 0; y--) {
+	    	for(int x = 0; x <= 7; x++) {
+	    		System.out.print((1 & (BB >> getIndex(x, y))) + " ");
+	    	}
+	    	System.out.println();
+	    }
+	    System.out.println();
+	}
+
+	/** Returns the index (0 - 63) corresponding to the square at (x, y) */
+	public static int getIndex(int x, int y) {
+		return x + 8*y;
+	}
+
+	/**
+	 * Returns the notation for the square at index.
+	 * Columns are labeled a-h from the left column to the right one
+	 * Rows are labeled 1-8 from the top to the bottom.
+	 */
+	public static String getMoveNotation(int move) {
+		return move == -1 ? "pass" : (char)('a' + move % 8)  + "" + (8 - move / 8);
+	}
+
+	/** Returns the move with the given notation (see getMoveNotation) */
+	public static int parseMove(String notation) {
+		if(notation.equals("pass")) {
+			return -1;
+		}
+		return getIndex(notation.charAt(0) - 'a', '8' - notation.charAt(1));
+	}
+
+	/** Returns the number of ones in the given bit string */
+	public static int bitCount(long b) {
+		return bitCount[(int)(b & 65535)]
+		     + bitCount[(int)((b >> 16) & 65535)]
+		     + bitCount[(int)((b >> 32) & 65535)]
+		     + bitCount[(int)((b >> 48) & 65535)];
+	}
+
+	/**
+	 * Fast bitscan method I found online. Returns the index of the first bit
+	 * in the given bitString
+	 *
+     * @author Matt Taylor
+     * @return index 0..63
+     * @param bb a 64-bit word to bitscan, should not be zero
+     */
+	private static final int[] foldedTable = {
+    	63,30, 3,32,59,14,11,33,
+    	60,24,50, 9,55,19,21,34,
+    	61,29, 2,53,51,23,41,18,
+    	56,28, 1,43,46,27, 0,35,
+    	62,31,58, 4, 5,49,54, 6,
+    	15,52,12,40, 7,42,45,16,
+    	25,57,48,13,10,39, 8,44,
+    	20,47,38,22,17,37,36,26,
+    };
+	public static int bitScanForward(long b) {
+    	b ^= (b - 1);
+        int folded = ((int)b) ^ ((int)(b >>> 32));
+        return foldedTable[(folded * 0x78291ACF) >>> 26];
+    }
+}